@@ -0,0 +1,13 @@
+#!/bin/sh
+# Starts the application, or with "migrate" as the first argument only applies the Flyway migrations and exits.
+# Migrating once per release and starting the instances with TODO_MIGRATE_ON_BOOT=false keeps the migrations off
+# every boot. Other arguments are passed on to the application, JAVA_OPTS to the JVM.
+set -e
+
+if [ "$1" = "migrate" ]; then
+    shift
+    exec java $JAVA_OPTS -XX:SharedArchiveFile=app.jsa -Dspring.aot.enabled=true -Dspring.context.exit=onRefresh \
+        -jar app.jar --todo.migrate-on-boot=true "$@"
+fi
+
+exec java $JAVA_OPTS -XX:SharedArchiveFile=app.jsa -Dspring.aot.enabled=true -jar app.jar "$@"
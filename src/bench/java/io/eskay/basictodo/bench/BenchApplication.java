@@ -0,0 +1,68 @@
+package io.eskay.basictodo.bench;
+
+import io.eskay.basictodo.BasicTodoApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Boots the application for a benchmark on a random port, against its own in-memory H2 database.
+ */
+final class BenchApplication implements AutoCloseable {
+
+    private final ConfigurableApplicationContext context;
+
+    private BenchApplication(ConfigurableApplicationContext context) {
+        this.context = context;
+    }
+
+    /**
+     * @param database     name of the in-memory database, runs sharing a name share their data
+     * @param queryLatency added to every statement through {@link SlowDataSourcePostProcessor}, zero for none
+     * @param profiles     Spring profiles to activate
+     * @param arguments    further {@code --name=value} properties
+     */
+    static BenchApplication start(String database, Duration queryLatency, List<String> profiles, String... arguments) {
+        var sources = new ArrayList<Class<?>>(List.of(BasicTodoApplication.class));
+        if (!queryLatency.isZero())
+            sources.add(SlowDataSourcePostProcessor.class);
+
+        // as arguments, so they win over the placeholders in application.yml
+        var args = new ArrayList<>(List.of(
+                "--server.port=0",
+                "--spring.datasource.url=jdbc:h2:mem:" + database + ";MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                "--spring.jpa.show-sql=false",
+                "--spring.devtools.restart.enabled=false",
+                "--logging.level.root=warn",
+                "--cors.frontend.url=http://localhost",
+                // the harnesses measure the server, not the 503s of the limiter in front of it
+                "--todo.admission.enabled=false",
+                "--bench.query-latency=" + queryLatency.toMillis() + "ms"));
+        args.addAll(Arrays.asList(arguments));
+
+        var context = new SpringApplicationBuilder(sources.toArray(Class<?>[]::new))
+                .profiles(profiles.toArray(String[]::new))
+                .run(args.toArray(String[]::new));
+        return new BenchApplication(context);
+    }
+
+    <T> T bean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    String baseUrl() {
+        return "http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort();
+    }
+
+    @Override
+    public void close() {
+        context.close();
+    }
+}
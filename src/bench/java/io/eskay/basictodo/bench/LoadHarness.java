@@ -0,0 +1,378 @@
+package io.eskay.basictodo.bench;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Collectors;
+
+/**
+ * Drives a weighted, seeded mix of the todo endpoints and reports throughput and latency percentiles per endpoint,
+ * as HdrHistogram percentile distributions (.hgrm) and a summary.json, under load.output/&lt;timestamp&gt;.
+ * <p>
+ * Unless load.url points it at a running instance, it boots the application on an in-memory H2 database first.
+ * Settings, passed as -D system properties:
+ * <ul>
+ *     <li>load.url, base url of an instance to test instead of booting one</li>
+ *     <li>load.profiles, comma separated Spring profiles of the booted instance, e.g. virtual-threads</li>
+ *     <li>load.query-latency-ms, added to every statement of the booted instance (default 0)</li>
+ *     <li>load.seeded-todos, created before the run for reads and updates to hit (default 1000)</li>
+ *     <li>load.mix, relative weights of list, get, create, put, patch and delete
+ *         (default list=20,get=40,create=10,put=10,patch=15,delete=5)</li>
+ *     <li>load.concurrency, most requests in flight at once (default 64)</li>
+ *     <li>load.rate, requests per second across all clients. 0, the default, sends each client's next request as
+ *         soon as the previous one answered. Otherwise requests go out on a fixed schedule and their latency counts
+ *         from when they were due, so time spent waiting for a free client is not hidden</li>
+ *     <li>load.warmup and load.duration, in seconds (default 10 and 60)</li>
+ *     <li>load.seed, for the random choices, the same seed and settings send the same requests (default 42)</li>
+ *     <li>load.output, directory the results are written to (default target/load-results)</li>
+ * </ul>
+ */
+public class LoadHarness {
+
+    private static final String URL = System.getProperty("load.url", "");
+    private static final List<String> PROFILES = Arrays.stream(System.getProperty("load.profiles", "").split(","))
+            .map(String::trim)
+            .filter(profile -> !profile.isEmpty())
+            .toList();
+    private static final Duration QUERY_LATENCY = Duration.ofMillis(Integer.getInteger("load.query-latency-ms", 0));
+    private static final int SEEDED_TODOS = Integer.getInteger("load.seeded-todos", 1000);
+    private static final String MIX = System.getProperty("load.mix", "list=20,get=40,create=10,put=10,patch=15,delete=5");
+    private static final int CONCURRENCY = Integer.getInteger("load.concurrency", 64);
+    private static final int RATE = Integer.getInteger("load.rate", 0);
+    private static final Duration WARMUP = Duration.ofSeconds(Integer.getInteger("load.warmup", 10));
+    private static final Duration DURATION = Duration.ofSeconds(Integer.getInteger("load.duration", 60));
+    private static final long SEED = Long.getLong("load.seed", 42);
+    private static final Path OUTPUT = Path.of(System.getProperty("load.output", "target/load-results"));
+
+    // the largest batch PATCH /api/todos/completed accepts
+    private static final int MAX_BULK_IDS = 1000;
+
+    enum Operation {
+        LIST("GET /api/todos?completed=true"),
+        GET("GET /api/todos/{id}"),
+        CREATE("POST /api/todos"),
+        PUT("PUT /api/todos"),
+        PATCH("PATCH /api/todos"),
+        DELETE("DELETE /api/todos/{id}");
+
+        final String endpoint;
+
+        Operation(String endpoint) {
+            this.endpoint = endpoint;
+        }
+    }
+
+    private final HttpClient client;
+    private final String baseUrl;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Operation[] operations;
+    private final int[] cumulativeWeights;
+
+    // read, updated and never deleted, so those requests always find their todo
+    private final List<Long> seededIds = new ArrayList<>();
+    // created during the run, deletes take from here
+    private final ConcurrentLinkedDeque<Long> createdIds = new ConcurrentLinkedDeque<>();
+
+    private final Map<Operation, Recorder> latencies = new EnumMap<>(Operation.class);
+    private final Map<Operation, LongAdder> errors = new EnumMap<>(Operation.class);
+    private volatile long measureFrom;
+
+    private LoadHarness(HttpClient client, String baseUrl) {
+        this.client = client;
+        this.baseUrl = baseUrl;
+
+        var weights = parseMix(MIX);
+        this.operations = weights.keySet().toArray(Operation[]::new);
+        this.cumulativeWeights = new int[operations.length];
+        var total = 0;
+        for (int i = 0; i < operations.length; i++) {
+            total += weights.get(operations[i]);
+            cumulativeWeights[i] = total;
+        }
+
+        for (var operation : Operation.values()) {
+            latencies.put(operation, new Recorder(3));
+            errors.put(operation, new LongAdder());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        try (var client = HttpClient.newBuilder()
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .connectTimeout(Duration.ofSeconds(10))
+                .build()) {
+            if (!URL.isEmpty()) {
+                new LoadHarness(client, URL).run();
+                return;
+            }
+            try (var application = BenchApplication.start("load", QUERY_LATENCY, PROFILES)) {
+                new LoadHarness(client, application.baseUrl()).run();
+            }
+        }
+    }
+
+    private void run() throws Exception {
+        var startedAt = LocalDateTime.now();
+        seed();
+
+        var start = System.nanoTime();
+        measureFrom = start + WARMUP.toNanos();
+        var end = measureFrom + DURATION.toNanos();
+        if (RATE > 0)
+            runOpenLoop(start, end);
+        else
+            runClosedLoop(end);
+
+        report(startedAt);
+    }
+
+    private void seed() throws Exception {
+        for (int i = 0; i < SEEDED_TODOS; i++) {
+            var response = client.send(create("Seeded todo " + i), HttpResponse.BodyHandlers.ofString());
+            seededIds.add(idOf(response));
+        }
+
+        // every fifth todo completed, so the completed listing has something to return
+        var completedIds = new ArrayList<Long>();
+        for (int i = 0; i < seededIds.size(); i += 5)
+            completedIds.add(seededIds.get(i));
+        for (int from = 0; from < completedIds.size(); from += MAX_BULK_IDS) {
+            var ids = completedIds.subList(from, Math.min(from + MAX_BULK_IDS, completedIds.size()));
+            client.send(json("PATCH", "/api/todos/completed",
+                            Map.of("ids", ids, "completed", true)),
+                    HttpResponse.BodyHandlers.discarding());
+        }
+    }
+
+    /**
+     * Each client sends its next request as soon as the previous one answered.
+     */
+    private void runClosedLoop(long end) {
+        try (var clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int c = 0; c < CONCURRENCY; c++) {
+                var random = new Random(SEED + c);
+                clients.submit(() -> {
+                    while (true) {
+                        var due = System.nanoTime();
+                        if (due >= end)
+                            return null;
+                        send(pick(random), random, due);
+                    }
+                });
+            }
+        }
+    }
+
+    /**
+     * Requests go out on a fixed schedule, at most {@code CONCURRENCY} at a time. A request that has to wait
+     * for a free slot is still timed from when it was due.
+     */
+    private void runOpenLoop(long start, long end) throws InterruptedException {
+        var random = new Random(SEED);
+        var interval = 1_000_000_000L / RATE;
+        var slots = new Semaphore(CONCURRENCY);
+
+        try (var clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (long due = start; due < end; due += interval) {
+                var wait = due - System.nanoTime();
+                if (wait > 0)
+                    LockSupport.parkNanos(wait);
+                slots.acquire();
+
+                var operation = pick(random);
+                var requestRandom = new Random(random.nextLong());
+                var requestDue = due;
+                clients.submit(() -> {
+                    try {
+                        send(operation, requestRandom, requestDue);
+                    } finally {
+                        slots.release();
+                    }
+                });
+            }
+        }
+    }
+
+    private void send(Operation operation, Random random, long due) {
+        // nothing created yet to delete, create something instead
+        Long deletedId = operation == Operation.DELETE ? createdIds.pollFirst() : null;
+        if (operation == Operation.DELETE && deletedId == null)
+            operation = Operation.CREATE;
+
+        var failed = false;
+        try {
+            var response = client.send(request(operation, random, deletedId), HttpResponse.BodyHandlers.ofString());
+            failed = response.statusCode() >= 400;
+            if (operation == Operation.CREATE && !failed)
+                createdIds.addLast(idOf(response));
+        } catch (Exception e) {
+            failed = true;
+        }
+
+        if (due < measureFrom)
+            return;
+        latencies.get(operation).recordValue(Math.max((System.nanoTime() - due) / 1_000, 0));
+        if (failed)
+            errors.get(operation).increment();
+    }
+
+    private HttpRequest request(Operation operation, Random random, Long deletedId) throws IOException {
+        var id = seededIds.get(random.nextInt(seededIds.size()));
+        return switch (operation) {
+            case LIST -> HttpRequest.newBuilder(URI.create(baseUrl + "/api/todos?completed=true")).GET().build();
+            case GET -> HttpRequest.newBuilder(URI.create(baseUrl + "/api/todos/" + id)).GET().build();
+            case CREATE -> create("Load test todo " + random.nextInt(1_000_000));
+            case PUT -> json("PUT", "/api/todos",
+                    Map.of("id", id, "name", "Updated todo " + random.nextInt(1_000_000), "completed", random.nextBoolean()));
+            case PATCH -> json("PATCH", "/api/todos", Map.of("id", id, "completed", random.nextBoolean()));
+            case DELETE -> HttpRequest.newBuilder(URI.create(baseUrl + "/api/todos/" + deletedId)).DELETE().build();
+        };
+    }
+
+    private Operation pick(Random random) {
+        var value = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < cumulativeWeights.length; i++)
+            if (value < cumulativeWeights[i])
+                return operations[i];
+        throw new IllegalStateException("no operation for " + value);
+    }
+
+    private void report(LocalDateTime startedAt) throws IOException {
+        var directory = OUTPUT.resolve(startedAt.format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")));
+        Files.createDirectories(directory);
+
+        var endpoints = new LinkedHashMap<String, Object>();
+        var total = new Histogram(3);
+        long totalErrors = 0;
+        System.out.printf("%n%-30s %9s %7s %9s %9s %9s %9s%n",
+                "endpoint", "requests", "errors", "req/s", "p50 ms", "p99 ms", "p999 ms");
+        for (var operation : Operation.values()) {
+            var histogram = latencies.get(operation).getIntervalHistogram();
+            var operationErrors = errors.get(operation).sum();
+            if (histogram.getTotalCount() == 0)
+                continue;
+
+            total.add(histogram);
+            totalErrors += operationErrors;
+            endpoints.put(operation.endpoint, summarize(histogram, operationErrors));
+            writeDistribution(directory.resolve(operation.name().toLowerCase() + ".hgrm"), histogram);
+            printRow(operation.endpoint, histogram, operationErrors);
+        }
+        writeDistribution(directory.resolve("total.hgrm"), total);
+        printRow("total", total, totalErrors);
+
+        var settings = new LinkedHashMap<String, Object>();
+        settings.put("target", URL.isEmpty() ? "h2" : URL);
+        settings.put("profiles", PROFILES);
+        settings.put("queryLatencyMs", QUERY_LATENCY.toMillis());
+        settings.put("seededTodos", SEEDED_TODOS);
+        settings.put("mix", parseMix(MIX).entrySet().stream()
+                .collect(Collectors.toMap(entry -> entry.getKey().name().toLowerCase(), Map.Entry::getValue,
+                        (a, b) -> a, LinkedHashMap::new)));
+        settings.put("concurrency", CONCURRENCY);
+        settings.put("rate", RATE);
+        settings.put("warmupSeconds", WARMUP.toSeconds());
+        settings.put("durationSeconds", DURATION.toSeconds());
+        settings.put("seed", SEED);
+
+        var summary = new LinkedHashMap<String, Object>();
+        summary.put("startedAt", startedAt.toString());
+        summary.put("java", System.getProperty("java.version"));
+        summary.put("processors", Runtime.getRuntime().availableProcessors());
+        summary.put("settings", settings);
+        summary.put("endpoints", endpoints);
+        summary.put("total", summarize(total, totalErrors));
+        objectMapper.writerWithDefaultPrettyPrinter().writeValue(directory.resolve("summary.json").toFile(), summary);
+
+        System.out.printf("%nresults written to %s%n", directory.toAbsolutePath());
+    }
+
+    private static Map<String, Object> summarize(Histogram histogram, long errors) {
+        var latency = new LinkedHashMap<String, Object>();
+        latency.put("p50", millis(histogram.getValueAtPercentile(50)));
+        latency.put("p99", millis(histogram.getValueAtPercentile(99)));
+        latency.put("p999", millis(histogram.getValueAtPercentile(99.9)));
+        latency.put("max", millis(histogram.getMaxValue()));
+        latency.put("mean", histogram.getMean() / 1_000);
+
+        var summary = new LinkedHashMap<String, Object>();
+        summary.put("requests", histogram.getTotalCount());
+        summary.put("errors", errors);
+        summary.put("throughput", histogram.getTotalCount() / (double) DURATION.toSeconds());
+        summary.put("latencyMs", latency);
+        return summary;
+    }
+
+    private static void printRow(String endpoint, Histogram histogram, long errors) {
+        System.out.printf("%-30s %9d %7d %9.1f %9.2f %9.2f %9.2f%n",
+                endpoint,
+                histogram.getTotalCount(),
+                errors,
+                histogram.getTotalCount() / (double) DURATION.toSeconds(),
+                millis(histogram.getValueAtPercentile(50)),
+                millis(histogram.getValueAtPercentile(99)),
+                millis(histogram.getValueAtPercentile(99.9)));
+    }
+
+    private static void writeDistribution(Path file, Histogram histogram) throws IOException {
+        try (var out = new PrintStream(Files.newOutputStream(file))) {
+            // recorded in microseconds, written in milliseconds
+            histogram.outputPercentileDistribution(out, 1_000.0);
+        }
+    }
+
+    private static double millis(long micros) {
+        return micros / 1_000.0;
+    }
+
+    private static Map<Operation, Integer> parseMix(String mix) {
+        var weights = new EnumMap<Operation, Integer>(Operation.class);
+        for (var entry : mix.split(",")) {
+            var parts = entry.split("=");
+            if (parts.length != 2)
+                throw new IllegalArgumentException("load.mix entry '%s' is not name=weight".formatted(entry));
+            var weight = Integer.parseInt(parts[1].trim());
+            if (weight > 0)
+                weights.put(Operation.valueOf(parts[0].trim().toUpperCase()), weight);
+        }
+        if (weights.isEmpty())
+            throw new IllegalArgumentException("load.mix '%s' has no operation with a positive weight".formatted(mix));
+        return weights;
+    }
+
+    private HttpRequest create(String name) throws IOException {
+        return json("POST", "/api/todos", Map.of("name", name));
+    }
+
+    private HttpRequest json(String method, String path, Object body) throws IOException {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Content-Type", "application/json")
+                .timeout(Duration.ofSeconds(30))
+                .method(method, HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body)))
+                .build();
+    }
+
+    private long idOf(HttpResponse<String> response) throws IOException {
+        if (response.statusCode() >= 400)
+            throw new IOException("request failed with %d: %s".formatted(response.statusCode(), response.body()));
+        return objectMapper.readTree(response.body()).get("id").asLong();
+    }
+}
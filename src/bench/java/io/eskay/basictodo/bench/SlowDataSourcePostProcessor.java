@@ -0,0 +1,72 @@
+package io.eskay.basictodo.bench;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+
+/**
+ * Makes every statement executed through the application's DataSource take at least {@code bench.query-latency}
+ * longer, the way a database under load or behind a slow network would. The connection stays borrowed
+ * for that time, so the pool saturates just as it would in production.
+ * Registered explicitly by the benchmarks, it is deliberately not a component so nothing scans it in.
+ */
+public class SlowDataSourcePostProcessor implements BeanPostProcessor {
+
+    private final Duration latency;
+
+    public SlowDataSourcePostProcessor(@Value("${bench.query-latency}") Duration latency) {
+        this.latency = latency;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (!(bean instanceof DataSource dataSource))
+            return bean;
+
+        return new DelegatingDataSource(dataSource) {
+            @Override
+            public Connection getConnection() throws SQLException {
+                return slow(Connection.class, super.getConnection());
+            }
+
+            @Override
+            public Connection getConnection(String username, String password) throws SQLException {
+                return slow(Connection.class, super.getConnection(username, password));
+            }
+        };
+    }
+
+    private <T> T slow(Class<T> type, T target) {
+        InvocationHandler handler = (proxy, method, args) -> {
+            if (method.getName().startsWith("execute"))
+                Thread.sleep(latency);
+
+            Object result;
+            try {
+                result = method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+
+            return switch (result) {
+                case CallableStatement statement -> slow(CallableStatement.class, statement);
+                case PreparedStatement statement -> slow(PreparedStatement.class, statement);
+                case Statement statement when method.getReturnType() == Statement.class ->
+                        slow(Statement.class, statement);
+                case null, default -> result;
+            };
+        };
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, handler));
+    }
+}
@@ -0,0 +1,114 @@
+package io.eskay.basictodo.bench;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the time from launching the application to its first successful GET /api/todos, over a number of runs
+ * per launch mode, and prints each run and the min, median and max per mode. The modes:
+ * <ul>
+ *     <li>jar, {@code java -jar} of the packaged jar, the way the image used to start</li>
+ *     <li>fast-startup, the extracted jar of the fast-startup profile with its ahead-of-time processed beans and
+ *         class-data sharing archive, the way the image starts now</li>
+ * </ul>
+ * Both need {@code ./mvnw -Pfast-startup package} first. Each run starts on a fresh in-memory H2 database, so the
+ * migrations run on every boot, unless POSTGRES_URL and the like point it at another database, which together
+ * with TODO_MIGRATE_ON_BOOT=false leaves them out. Settings, passed as -D system properties:
+ * <ul>
+ *     <li>startup.modes, comma separated (default jar,fast-startup)</li>
+ *     <li>startup.runs, per mode (default 5)</li>
+ *     <li>startup.port, the application listens on (default 18080)</li>
+ *     <li>startup.timeout, in seconds, for a single start (default 120)</li>
+ *     <li>startup.output, directory the log of each run is written to (default target/startup-results)</li>
+ * </ul>
+ */
+public class StartupHarness {
+
+    private static final List<String> MODES = Arrays.stream(System.getProperty("startup.modes", "jar,fast-startup").split(","))
+            .map(String::trim)
+            .filter(mode -> !mode.isEmpty())
+            .toList();
+    private static final int RUNS = Integer.getInteger("startup.runs", 5);
+    private static final int PORT = Integer.getInteger("startup.port", 18080);
+    private static final Duration TIMEOUT = Duration.ofSeconds(Integer.getInteger("startup.timeout", 120));
+    private static final Path OUTPUT = Path.of(System.getProperty("startup.output", "target/startup-results"));
+
+    private static final String JAR = "Basic-Todo-0.0.1-SNAPSHOT.jar";
+    private static final Duration POLL_INTERVAL = Duration.ofMillis(5);
+
+    public static void main(String[] args) throws Exception {
+        Files.createDirectories(OUTPUT);
+        try (var client = HttpClient.newBuilder().connectTimeout(Duration.ofMillis(500)).build()) {
+            for (var mode : MODES) {
+                var times = new long[RUNS];
+                for (var run = 0; run < RUNS; run++) {
+                    times[run] = timeToFirstList(client, mode, OUTPUT.resolve("%s-%d.log".formatted(mode, run + 1)));
+                    System.out.printf("%s run %d: %d ms%n", mode, run + 1, times[run]);
+                }
+                Arrays.sort(times);
+                System.out.printf("%s: min %d ms, median %d ms, max %d ms over %d runs%n",
+                        mode, times[0], times[RUNS / 2], times[RUNS - 1], RUNS);
+            }
+        }
+    }
+
+    private static long timeToFirstList(HttpClient client, String mode, Path log) throws Exception {
+        var java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        var command = new ArrayList<>(List.of(java));
+        var directory = Path.of("target");
+        switch (mode) {
+            case "jar" -> {
+            }
+            case "fast-startup" -> {
+                directory = directory.resolve("fast-startup");
+                command.addAll(List.of("-XX:SharedArchiveFile=application.jsa", "-Dspring.aot.enabled=true"));
+            }
+            default -> throw new IllegalArgumentException("unknown startup mode: " + mode);
+        }
+        command.addAll(List.of("-jar", JAR, "--server.port=" + PORT));
+
+        var builder = new ProcessBuilder(command)
+                .directory(directory.toFile())
+                .redirectErrorStream(true)
+                .redirectOutput(log.toFile());
+        var environment = builder.environment();
+        environment.putIfAbsent("POSTGRES_URL", "jdbc:h2:mem:startup;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE");
+        environment.putIfAbsent("POSTGRES_USER", "sa");
+        environment.putIfAbsent("POSTGRES_PASSWORD", "");
+        environment.putIfAbsent("CORS_FRONTEND_URL", "http://localhost:3000");
+
+        var request = HttpRequest.newBuilder(URI.create("http://localhost:%d/api/todos".formatted(PORT)))
+                .timeout(Duration.ofSeconds(5))
+                .build();
+        var start = System.nanoTime();
+        var process = builder.start();
+        try {
+            while (System.nanoTime() - start < TIMEOUT.toNanos()) {
+                if (!process.isAlive())
+                    throw new IllegalStateException("%s exited with %d, see %s".formatted(mode, process.exitValue(), log));
+                try {
+                    if (client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200)
+                        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                } catch (IOException e) {
+                    // not listening yet
+                }
+                Thread.sleep(POLL_INTERVAL);
+            }
+            throw new IllegalStateException("%s did not answer within %s, see %s".formatted(mode, TIMEOUT, log));
+        } finally {
+            process.destroy();
+            if (!process.waitFor(30, TimeUnit.SECONDS))
+                process.destroyForcibly().waitFor();
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package io.eskay.basictodo.bench;
+
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.eskay.basictodo.dto.response.TodoDto;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+/**
+ * Cost of writing todo listings as JSON, for listing sizes from a single todo up to a large unpaged list.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TodoJsonBenchmark {
+
+    @Param({"1", "50", "500", "5000"})
+    private int size;
+
+    private ObjectWriter writer;
+    private List<TodoDto> todos;
+
+    @Setup
+    public void setUp() {
+        // configured the way Spring Boot configures the ObjectMapper of the application
+        var mapper = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+        // the writer Spring MVC resolves for a List<TodoDto> return value
+        writer = mapper.writerFor(mapper.getTypeFactory().constructCollectionType(List.class, TodoDto.class));
+        var today = LocalDate.now();
+        todos = LongStream.rangeClosed(1, size)
+                .mapToObj(id -> new TodoDto(id, "Todo number " + id, today.minusDays(id % 365), id % 5 == 0, id % 3))
+                .toList();
+    }
+
+    @Benchmark
+    public byte[] serializeTodoList() throws Exception {
+        return writer.writeValueAsBytes(todos);
+    }
+}
@@ -0,0 +1,79 @@
+package io.eskay.basictodo.bench;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.eskay.basictodo.dto.response.TodoDto;
+import io.eskay.basictodo.service.TodoListFormat;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Payload size, server encode time and client decode time of todo listings in each {@link TodoListFormat}, plain
+ * and gzipped. The payload sizes are printed once per trial.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TodoListEncodingBenchmark {
+
+    @Param({"JSON", "CBOR", "SMILE"})
+    private TodoListFormat format;
+
+    @Param({"false", "true"})
+    private boolean gzip;
+
+    @Param({"1000"})
+    private int size;
+
+    private ObjectMapper mapper;
+    private List<TodoDto> todos;
+    private byte[] payload;
+
+    @Setup
+    public void setUp() throws IOException {
+        // configured the way Spring Boot configures the ObjectMapper of the application
+        mapper = format.mapperFrom(Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build());
+        var today = LocalDate.now();
+        todos = LongStream.rangeClosed(1, size)
+                .mapToObj(id -> new TodoDto(id, "Todo number " + id, today.minusDays(id % 365), id % 5 == 0, id % 3))
+                .toList();
+        payload = encode();
+        System.out.printf("%n%s%s: %d bytes for %d todos%n", format, gzip ? " gzipped" : "", payload.length, size);
+    }
+
+    @Benchmark
+    public byte[] encode() throws IOException {
+        var body = mapper.writeValueAsBytes(todos);
+        if (!gzip)
+            return body;
+        var compressed = new ByteArrayOutputStream(body.length / 4);
+        try (var out = new GZIPOutputStream(compressed)) {
+            out.write(body);
+        }
+        return compressed.toByteArray();
+    }
+
+    @Benchmark
+    public TodoDto[] decode() throws IOException {
+        if (!gzip)
+            return mapper.readValue(payload, TodoDto[].class);
+        try (var in = new GZIPInputStream(new ByteArrayInputStream(payload))) {
+            return mapper.readValue(in, TodoDto[].class);
+        }
+    }
+}
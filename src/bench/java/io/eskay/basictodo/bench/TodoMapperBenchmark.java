@@ -0,0 +1,49 @@
+package io.eskay.basictodo.bench;
+
+import io.eskay.basictodo.dto.request.CreateTodoRequest;
+import io.eskay.basictodo.dto.response.TodoDto;
+import io.eskay.basictodo.entity.Todo;
+import io.eskay.basictodo.mapper.TodoDtoMapper;
+import io.eskay.basictodo.mapper.TodoRequestMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request cost of turning requests into entities and entities into response DTOs.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TodoMapperBenchmark {
+
+    private final TodoDtoMapper dtoMapper = new TodoDtoMapper();
+    private final TodoRequestMapper requestMapper = new TodoRequestMapper();
+
+    private Todo todo;
+    private CreateTodoRequest createTodoRequest;
+
+    @Setup
+    public void setUp() {
+        todo = Todo.builder()
+                .id(42L).name("Go for a walk")
+                .createdAt(LocalDate.now())
+                .completed(true).version(3L)
+                .build();
+        createTodoRequest = new CreateTodoRequest("Go for a walk");
+    }
+
+    @Benchmark
+    public TodoDto todoDtoMapper() {
+        return dtoMapper.apply(todo);
+    }
+
+    @Benchmark
+    public Todo todoRequestMapper() {
+        return requestMapper.apply(createTodoRequest);
+    }
+}
@@ -0,0 +1,59 @@
+package io.eskay.basictodo.bench;
+
+import io.eskay.basictodo.service.TodoNameIndex;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of name searches in an index of millions of todos, for a query matching few todos, one matching
+ * many and one whose trigrams are all common but rarely together.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+@State(Scope.Benchmark)
+public class TodoNameIndexBenchmark {
+
+    private static final String[] WORDS = {
+            "walk", "the", "dog", "buy", "milk", "call", "mum", "write", "report", "clean", "kitchen", "pay",
+            "rent", "book", "dentist", "review", "pull", "request", "water", "plants", "go", "for", "a", "run"};
+
+    @Param("2000000")
+    private int todos;
+
+    private TodoNameIndex nameIndex;
+
+    @Setup
+    public void setUp() {
+        // only search is measured, which uses neither the repository nor transactions
+        nameIndex = new TodoNameIndex(null, null);
+        var random = new SplittableRandom(42);
+        for (var id = 1L; id <= todos; id++) {
+            var name = new StringBuilder();
+            for (var word = 0; word < 4; word++)
+                name.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+            name.append(id);
+            nameIndex.put(id, name.toString());
+        }
+    }
+
+    @Benchmark
+    public List<Long> selectiveQuery() {
+        return nameIndex.search("1234567", 50);
+    }
+
+    @Benchmark
+    public List<Long> commonQuery() {
+        return nameIndex.search("walk", 50);
+    }
+
+    @Benchmark
+    public List<Long> commonTrigramsRarelyTogether() {
+        return nameIndex.search("milk dentist water", 50);
+    }
+}
@@ -0,0 +1,64 @@
+package io.eskay.basictodo.bench;
+
+import io.eskay.basictodo.dto.response.TodoDto;
+import io.eskay.basictodo.mapper.TodoDtoMapper;
+import io.eskay.basictodo.repository.TodoRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+/**
+ * Reading every todo as managed entities mapped to DTOs, the way the listings used to, against selecting them
+ * straight into DTOs. Both on the application's own H2 database, run with -prof gc for the allocation per read.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TodoReadPathBenchmark {
+
+    @Param({"1000", "10000"})
+    private int size;
+
+    private BenchApplication application;
+    private TodoRepository repository;
+    private TodoDtoMapper dtoMapper;
+
+    @Setup
+    public void setUp() {
+        application = BenchApplication.start("read-path", Duration.ZERO, List.of());
+        repository = application.bean(TodoRepository.class);
+        dtoMapper = application.bean(TodoDtoMapper.class);
+        var today = LocalDate.now();
+        var rows = LongStream.rangeClosed(1, size)
+                .mapToObj(id -> new Object[]{id, "Todo number " + id, today.minusDays(id % 365), id % 5 == 0})
+                .toList();
+        application.bean(JdbcTemplate.class)
+                .batchUpdate("insert into basic_todo (id, name, created_at, completed) values (?, ?, ?, ?)", rows);
+    }
+
+    @TearDown
+    public void tearDown() {
+        application.close();
+    }
+
+    @Benchmark
+    public List<TodoDto> entities() {
+        return repository.findAll()
+                .stream()
+                .map(dtoMapper)
+                .toList();
+    }
+
+    @Benchmark
+    public List<TodoDto> projection() {
+        return repository.findAllTodoDtos();
+    }
+}
@@ -0,0 +1,68 @@
+package io.eskay.basictodo.bench;
+
+import io.eskay.basictodo.dto.request.CreateTodoRequest;
+import io.eskay.basictodo.dto.request.PatchTodoRequest;
+import io.eskay.basictodo.dto.request.UpdateTodoRequest;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import jakarta.validation.ValidatorFactory;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the Bean Validation run that @Valid triggers on every write request, for valid requests and
+ * for requests that fail, which additionally interpolate their messages.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TodoRequestValidationBenchmark {
+
+    @Param({"true", "false"})
+    private boolean valid;
+
+    private ValidatorFactory validatorFactory;
+    private Validator validator;
+
+    private CreateTodoRequest createTodoRequest;
+    private PatchTodoRequest patchTodoRequest;
+    private UpdateTodoRequest updateTodoRequest;
+
+    @Setup
+    public void setUp() {
+        validatorFactory = Validation.buildDefaultValidatorFactory();
+        validator = validatorFactory.getValidator();
+
+        var name = valid ? "Go for a walk" : "Go";
+        var id = valid ? 42L : 0L;
+        createTodoRequest = new CreateTodoRequest(name);
+        patchTodoRequest = new PatchTodoRequest(id, name, true);
+        updateTodoRequest = new UpdateTodoRequest(id, name, valid ? true : null);
+    }
+
+    @TearDown
+    public void tearDown() {
+        validatorFactory.close();
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<CreateTodoRequest>> createTodoRequest() {
+        return validator.validate(createTodoRequest);
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<PatchTodoRequest>> patchTodoRequest() {
+        return validator.validate(patchTodoRequest);
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<UpdateTodoRequest>> updateTodoRequest() {
+        return validator.validate(updateTodoRequest);
+    }
+}
@@ -0,0 +1,169 @@
+package io.eskay.basictodo.bench;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Compares throughput and latency of the todo endpoints on Tomcat's platform-thread pool and with the
+ * virtual-threads profile, against an in-memory database made slow by {@link SlowDataSourcePostProcessor}.
+ * <p>
+ * Tunables, passed as -D system properties:
+ * <ul>
+ *     <li>bench.query-latency-ms, added to every statement (default 50)</li>
+ *     <li>bench.pool-size, Hikari connections in both modes (default 20)</li>
+ *     <li>bench.concurrency, clients sending requests back to back (default 400)</li>
+ *     <li>bench.warmup and bench.duration of each run (default 10s and 30s)</li>
+ * </ul>
+ */
+public class VirtualThreadsBenchmark {
+
+    private static final int SEEDED_TODOS = 500;
+
+    private static final Duration QUERY_LATENCY = Duration.ofMillis(Integer.getInteger("bench.query-latency-ms", 50));
+    private static final int POOL_SIZE = Integer.getInteger("bench.pool-size", 20);
+    private static final int CONCURRENCY = Integer.getInteger("bench.concurrency", 400);
+    private static final Duration WARMUP = Duration.ofSeconds(Integer.getInteger("bench.warmup", 10));
+    private static final Duration DURATION = Duration.ofSeconds(Integer.getInteger("bench.duration", 30));
+
+    public static void main(String[] args) throws Exception {
+        var results = new ArrayList<String>();
+        for (var virtualThreads : List.of(false, true)) {
+            var mode = virtualThreads ? "virtual" : "platform";
+            try (var application = BenchApplication.start(
+                    "bench-" + mode,
+                    QUERY_LATENCY,
+                    virtualThreads ? List.of("virtual-threads") : List.of(),
+                    "--spring.datasource.hikari.maximum-pool-size=" + POOL_SIZE,
+                    "--spring.datasource.hikari.minimum-idle=" + POOL_SIZE)) {
+                results.addAll(run(mode, application.baseUrl()));
+            }
+        }
+
+        System.out.printf("%nquery latency %dms, pool size %d, %d clients, %ss per run%n",
+                QUERY_LATENCY.toMillis(), POOL_SIZE, CONCURRENCY, DURATION.toSeconds());
+        System.out.printf("%-9s %-30s %9s %7s %9s %9s %9s%n",
+                "threads", "endpoint", "requests", "errors", "req/s", "p50 ms", "p99 ms");
+        results.forEach(System.out::println);
+    }
+
+    private static List<String> run(String mode, String baseUrl) throws Exception {
+        try (var client = HttpClient.newBuilder().executor(Executors.newVirtualThreadPerTaskExecutor()).build()) {
+            seed(client, baseUrl);
+
+            Map<String, IntFunction<HttpRequest>> endpoints = new LinkedHashMap<>();
+            endpoints.put("GET /api/todos/{id} (cached)", i -> get(baseUrl + "/api/todos/" + (1 + i % SEEDED_TODOS)));
+            endpoints.put("GET /api/todos?completed=true", i -> get(baseUrl + "/api/todos?completed=true"));
+            endpoints.put("GET /api/todos/page", i -> get(baseUrl + "/api/todos/page?limit=50"));
+            endpoints.put("POST /api/todos", i -> post(baseUrl + "/api/todos", "{\"name\": \"Benchmark todo " + i + "\"}"));
+
+            load(client, endpoints, WARMUP, null);
+            var latencies = new LinkedHashMap<String, ConcurrentLinkedQueue<Long>>();
+            endpoints.keySet().forEach(name -> latencies.put(name, new ConcurrentLinkedQueue<>()));
+            var errors = load(client, endpoints, DURATION, latencies);
+
+            return latencies.entrySet().stream()
+                    .map(entry -> summarize(mode, entry.getKey(), entry.getValue(), errors.get(entry.getKey())))
+                    .toList();
+        }
+    }
+
+    private static void seed(HttpClient client, String baseUrl) throws Exception {
+        for (int i = 0; i < SEEDED_TODOS; i++)
+            client.send(post(baseUrl + "/api/todos", "{\"name\": \"Seeded todo " + i + "\"}"), HttpResponse.BodyHandlers.discarding());
+
+        var everyFifth = IntStream.rangeClosed(1, SEEDED_TODOS)
+                .filter(id -> id % 5 == 0)
+                .mapToObj(String::valueOf)
+                .collect(Collectors.joining(","));
+        client.send(HttpRequest.newBuilder(URI.create(baseUrl + "/api/todos/completed"))
+                        .header("Content-Type", "application/json")
+                        .method("PATCH", HttpRequest.BodyPublishers.ofString(
+                                "{\"ids\": [" + everyFifth + "], \"completed\": true}"))
+                        .build(),
+                HttpResponse.BodyHandlers.discarding());
+    }
+
+    /**
+     * Keeps {@code CONCURRENCY} clients busy for {@code duration}, each cycling through the endpoints.
+     * Latencies are recorded only when a sink is given, the error counts per endpoint are returned.
+     */
+    private static Map<String, AtomicLong> load(HttpClient client,
+                                                Map<String, IntFunction<HttpRequest>> endpoints,
+                                                Duration duration,
+                                                Map<String, ConcurrentLinkedQueue<Long>> latencies) throws InterruptedException {
+        var names = List.copyOf(endpoints.keySet());
+        var errors = new LinkedHashMap<String, AtomicLong>();
+        names.forEach(name -> errors.put(name, new AtomicLong()));
+        var deadline = System.nanoTime() + duration.toNanos();
+
+        try (var clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int c = 0; c < CONCURRENCY; c++) {
+                var offset = c;
+                clients.submit(() -> {
+                    for (int i = offset; System.nanoTime() < deadline; i++) {
+                        var name = names.get(i % names.size());
+                        var request = endpoints.get(name).apply(ThreadLocalRandom.current().nextInt(SEEDED_TODOS));
+                        var start = System.nanoTime();
+                        try {
+                            var response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                            if (response.statusCode() >= 400)
+                                errors.get(name).incrementAndGet();
+                        } catch (Exception e) {
+                            errors.get(name).incrementAndGet();
+                        }
+                        if (latencies != null)
+                            latencies.get(name).add(System.nanoTime() - start);
+                    }
+                    return null;
+                });
+            }
+        }
+        return errors;
+    }
+
+    private static String summarize(String mode, String endpoint, ConcurrentLinkedQueue<Long> latencies, AtomicLong errors) {
+        var sorted = latencies.stream().mapToLong(Long::longValue).toArray();
+        Arrays.sort(sorted);
+        return "%-9s %-30s %9d %7d %9.1f %9.1f %9.1f".formatted(
+                mode,
+                endpoint,
+                sorted.length,
+                errors.get(),
+                sorted.length / (double) DURATION.toSeconds(),
+                percentile(sorted, 0.50),
+                percentile(sorted, 0.99));
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0)
+            return 0;
+        var index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(index, 0)] / 1_000_000.0;
+    }
+
+    private static HttpRequest get(String url) {
+        return HttpRequest.newBuilder(URI.create(url)).GET().build();
+    }
+
+    private static HttpRequest post(String url, String json) {
+        return HttpRequest.newBuilder(URI.create(url))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .build();
+    }
+}
@@ -0,0 +1,181 @@
+package io.eskay.basictodo.config;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounds the requests in progress by a limit found from their latency, AIMD style. While requests finish about as
+ * fast as they usually do and the limit is in use, it grows by about one per round trip. When the recent latency of
+ * a route rises above {@code latencyTolerance} times its usual latency, work is queueing up behind the database and
+ * the limit shrinks by {@code backoffRatio}, at most once per round trip.
+ * <p>
+ * Latency is tracked per route: a cached lookup and a full listing take very different times without anything
+ * being congested. The usual latency of a route is a slow moving average of its requests, and the recent one a fast
+ * moving average, so a single slow request among fast ones does not count as congestion. After the database got
+ * lastingly slower the usual latency catches up and the limit grows back to what it can take at its new speed.
+ * <p>
+ * Requests of the {@code shedFirst} priority only get {@code shedFirstShare} of the limit, so they are turned away
+ * while the others still get through.
+ */
+public class AdaptiveConcurrencyLimiter implements MeterBinder {
+
+    public enum Priority {
+        READ, WRITE
+    }
+
+    // weight of each request in the usual latency of its route, which so follows about the last hundred of them
+    private static final double BASELINE_SMOOTHING = 0.01;
+    // and in the recent latency, about the last twenty of them
+    private static final double RECENT_SMOOTHING = 0.05;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double latencyTolerance;
+    private final double backoffRatio;
+    private final Priority shedFirst;
+    private final double shedFirstShare;
+    private final Map<Priority, LongAdder> rejected = new EnumMap<>(Priority.class);
+
+    // guarded by this
+    private double limit;
+    private int inFlight;
+    private final Map<String, RouteLatency> routes = new HashMap<>();
+    // releases to wait for before backing off again, so the requests in progress at a backoff do not repeat it
+    private int releasesUntilBackoff;
+    private MeterRegistry registry;
+
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, double latencyTolerance,
+                                      double backoffRatio, Priority shedFirst, double shedFirstShare) {
+        if (minLimit < 1 || minLimit > initialLimit || initialLimit > maxLimit)
+            throw new IllegalArgumentException("limits must satisfy 1 <= min <= initial <= max");
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyTolerance = latencyTolerance;
+        this.backoffRatio = backoffRatio;
+        this.shedFirst = shedFirst;
+        this.shedFirstShare = shedFirstShare;
+        this.limit = initialLimit;
+        for (var priority : Priority.values())
+            rejected.put(priority, new LongAdder());
+    }
+
+    /**
+     * Whether a request of {@code priority} may start, in which case it must be {@link #release released} once done.
+     */
+    public synchronized boolean tryAcquire(Priority priority) {
+        var admitted = priority == shedFirst ? limit * shedFirstShare : limit;
+        if (inFlight >= Math.max(1, (int) admitted)) {
+            rejected.get(priority).increment();
+            return false;
+        }
+        inFlight++;
+        return true;
+    }
+
+    /**
+     * Ends a request admitted by {@link #tryAcquire}, which took {@code latencyNanos} on {@code route}.
+     */
+    public void release(String route, long latencyNanos) {
+        RouteLatency newRoute = null;
+        synchronized (this) {
+            var wasInFlight = inFlight--;
+            var latency = routes.get(route);
+            if (latency == null) {
+                latency = new RouteLatency(latencyNanos);
+                routes.put(route, latency);
+                newRoute = latency;
+            }
+            latency.baselineNanos += (latencyNanos - latency.baselineNanos) * BASELINE_SMOOTHING;
+            latency.recentNanos += (latencyNanos - latency.recentNanos) * RECENT_SMOOTHING;
+
+            if (releasesUntilBackoff > 0)
+                releasesUntilBackoff--;
+            var congested = latency.recentNanos > latency.baselineNanos * latencyTolerance;
+            if (congested && releasesUntilBackoff == 0) {
+                limit = Math.max(minLimit, limit * backoffRatio);
+                releasesUntilBackoff = wasInFlight;
+            }
+            // only a limit that is in use has shown it is not too low
+            else if (!congested && wasInFlight * 2 >= limit) {
+                limit = Math.min(maxLimit, limit + 1 / limit);
+            }
+        }
+        if (newRoute != null)
+            registerBaseline(route, newRoute);
+    }
+
+    public synchronized int limit() {
+        return (int) limit;
+    }
+
+    public synchronized int inFlight() {
+        return inFlight;
+    }
+
+    public long rejected(Priority priority) {
+        return rejected.get(priority).sum();
+    }
+
+    private synchronized double baselineNanos(RouteLatency latency) {
+        return latency.baselineNanos;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("todo.admission.limit", this, AdaptiveConcurrencyLimiter::limit)
+                .description("Requests to the todo api allowed in progress at once")
+                .register(registry);
+        Gauge.builder("todo.admission.in.flight", this, AdaptiveConcurrencyLimiter::inFlight)
+                .description("Requests to the todo api in progress")
+                .register(registry);
+        for (var priority : Priority.values()) {
+            FunctionCounter.builder("todo.admission.rejected", this, limiter -> limiter.rejected(priority))
+                    .tag("priority", priority.name().toLowerCase(Locale.ROOT))
+                    .description("Requests to the todo api turned away with a 503")
+                    .register(registry);
+        }
+
+        Map<String, RouteLatency> seenRoutes;
+        synchronized (this) {
+            this.registry = registry;
+            seenRoutes = Map.copyOf(routes);
+        }
+        seenRoutes.forEach(this::registerBaseline);
+    }
+
+    // routes are only known once requested, their gauges are registered as they show up
+    private void registerBaseline(String route, RouteLatency latency) {
+        MeterRegistry target;
+        synchronized (this) {
+            target = registry;
+        }
+        if (target == null)
+            return;
+        TimeGauge.builder("todo.admission.latency.baseline", latency, TimeUnit.NANOSECONDS, this::baselineNanos)
+                .tag("route", route)
+                .description("Usual latency of requests to a todo api route, slower ones shrink the limit")
+                .register(target);
+    }
+
+    // guarded by the limiter
+    private static final class RouteLatency {
+
+        private double baselineNanos;
+        private double recentNanos;
+
+        RouteLatency(long latencyNanos) {
+            this.baselineNanos = latencyNanos;
+            this.recentNanos = latencyNanos;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package io.eskay.basictodo.config;
+
+import io.eskay.basictodo.config.AdaptiveConcurrencyLimiter.Priority;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.time.Duration;
+
+/**
+ * Admission control for the todo api, see {@link AdaptiveConcurrencyLimiter}. The change feed and the export
+ * keep streaming for minutes, so they would hold on to a slot all that time and are left out.
+ * <p>
+ * An application processed ahead of time keeps what {@code todo.admission.enabled} was while building, see
+ * {@link AotConditionsConfig}.
+ */
+@Configuration
+@ConditionalOnProperty(name = "todo.admission.enabled", havingValue = "true")
+public class AdmissionControlConfig implements WebMvcConfigurer {
+
+    private final AdaptiveConcurrencyLimiter limiter;
+    private final Duration retryAfter;
+
+    public AdmissionControlConfig(@Value("${todo.admission.initial-limit}") int initialLimit,
+                                  @Value("${todo.admission.min-limit}") int minLimit,
+                                  @Value("${todo.admission.max-limit}") int maxLimit,
+                                  @Value("${todo.admission.latency-tolerance}") double latencyTolerance,
+                                  @Value("${todo.admission.backoff-ratio}") double backoffRatio,
+                                  @Value("${todo.admission.shed-first}") Priority shedFirst,
+                                  @Value("${todo.admission.shed-first-share}") double shedFirstShare,
+                                  @Value("${todo.admission.retry-after}") Duration retryAfter) {
+        this.limiter = new AdaptiveConcurrencyLimiter(
+                initialLimit, minLimit, maxLimit, latencyTolerance, backoffRatio, shedFirst, shedFirstShare);
+        this.retryAfter = retryAfter;
+    }
+
+    @Bean
+    public AdaptiveConcurrencyLimiter adaptiveConcurrencyLimiter() {
+        return limiter;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new AdmissionControlInterceptor(limiter, retryAfter))
+                .addPathPatterns("/api/todos", "/api/todos/**")
+                .excludePathPatterns("/api/todos/events", "/api/todos/export");
+    }
+}
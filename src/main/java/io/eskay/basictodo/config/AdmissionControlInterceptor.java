@@ -0,0 +1,56 @@
+package io.eskay.basictodo.config;
+
+import io.eskay.basictodo.config.AdaptiveConcurrencyLimiter.Priority;
+import io.eskay.basictodo.exception.ServiceOverloadedException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.time.Duration;
+import java.util.Set;
+
+/**
+ * Turns requests away with a {@link ServiceOverloadedException} while the {@link AdaptiveConcurrencyLimiter} is at
+ * its limit, instead of letting them queue for a thread or a connection. Reads and writes are told apart by method.
+ */
+class AdmissionControlInterceptor implements HandlerInterceptor {
+
+    private static final String STARTED_AT = AdmissionControlInterceptor.class.getName() + ".startedAt";
+
+    private static final Set<String> SAFE_METHODS = Set.of(
+            HttpMethod.GET.name(), HttpMethod.HEAD.name(), HttpMethod.OPTIONS.name());
+
+    private final AdaptiveConcurrencyLimiter limiter;
+    private final Duration retryAfter;
+
+    AdmissionControlInterceptor(AdaptiveConcurrencyLimiter limiter, Duration retryAfter) {
+        this.limiter = limiter;
+        this.retryAfter = retryAfter;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        var priority = SAFE_METHODS.contains(request.getMethod()) ? Priority.READ : Priority.WRITE;
+        if (!limiter.tryAcquire(priority))
+            throw new ServiceOverloadedException("too many requests in progress, try again later", retryAfter);
+        request.setAttribute(STARTED_AT, System.nanoTime());
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        if (request.getAttribute(STARTED_AT) instanceof Long startedAt) {
+            request.removeAttribute(STARTED_AT);
+            limiter.release(route(request), System.nanoTime() - startedAt);
+        }
+    }
+
+    // the mapped pattern rather than the path, so every todo id counts as the same route
+    private static String route(HttpServletRequest request) {
+        var pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return request.getMethod() + " " + (pattern != null ? pattern : request.getRequestURI());
+    }
+}
@@ -0,0 +1,64 @@
+package io.eskay.basictodo.config;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+/**
+ * An application processed ahead of time, see the fast-startup profile in the pom, keeps the beans its conditions
+ * decided on while building, whatever its properties are when it starts. These properties select beans that way:
+ * <ul>
+ *     <li>{@code todo.replica.url}, whether read-only transactions go to a replica, see {@link ReplicaRoutingConfig}</li>
+ *     <li>{@code todo.admission.enabled}, whether api requests go through admission control, see
+ *     {@link AdmissionControlConfig}</li>
+ *     <li>{@code spring.threads.virtual.enabled}, also set by the virtual-threads profile, whether Spring Boot runs
+ *     requests, @Async listeners and @Scheduled jobs on virtual threads</li>
+ * </ul>
+ * Starting fails when one of them is set differently than while building, instead of silently running without
+ * what it asks for. Every other property is read when the application starts.
+ */
+@Configuration(proxyBeanMethods = false)
+public class AotConditionsConfig {
+
+    @Bean
+    @ConditionalOnThreading(Threading.VIRTUAL)
+    public BuiltWithVirtualThreads builtWithVirtualThreads() {
+        return new BuiltWithVirtualThreads();
+    }
+
+    @Bean
+    public SmartInitializingSingleton aotConditionsCheck(Environment environment,
+                                                         ObjectProvider<ReplicaRoutingConfig> replicaRoutingConfig,
+                                                         ObjectProvider<AdmissionControlConfig> admissionControlConfig,
+                                                         ObjectProvider<BuiltWithVirtualThreads> builtWithVirtualThreads) {
+        return () -> {
+            checkBuiltWith("todo.replica.url",
+                    replicaRoutingConfig.getIfAvailable() != null,
+                    !environment.getProperty("todo.replica.url", "").isBlank());
+            checkBuiltWith("todo.admission.enabled",
+                    admissionControlConfig.getIfAvailable() != null,
+                    environment.getProperty("todo.admission.enabled", Boolean.class, false));
+            checkBuiltWith("spring.threads.virtual.enabled",
+                    builtWithVirtualThreads.getIfAvailable() != null,
+                    Threading.VIRTUAL.isActive(environment));
+        };
+    }
+
+    private static void checkBuiltWith(String property, boolean builtWith, boolean setNow) {
+        if (builtWith == setNow)
+            return;
+        throw new IllegalStateException(("'%s' is %s, but was %s when the application was processed ahead of time."
+                + " Build it again with the property set the same way, see the fast-startup profile in pom.xml")
+                .formatted(property, setNow ? "set" : "not set", builtWith ? "set" : "not set"));
+    }
+
+    /**
+     * Only there when virtual threads were enabled while the bean definitions were built.
+     */
+    public static final class BuiltWithVirtualThreads {
+    }
+}
@@ -0,0 +1,12 @@
+package io.eskay.basictodo.config;
+
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+// Runs the cache advice around the transaction advice, so evictions happen only after a write has committed
+@Configuration
+@EnableCaching(order = Ordered.LOWEST_PRECEDENCE - 1)
+public class CacheConfig {
+    public static final String TODOS_CACHE = "todos";
+}
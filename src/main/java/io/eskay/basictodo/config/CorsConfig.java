@@ -6,10 +6,22 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
+/**
+ * Lets the frontend in {@code cors.frontend.url}, or any origin for {@code *}, call the api. Credentials are only
+ * allowed with replica routing, where the read-your-writes cookie has to go along with every request, see
+ * {@link ReadYourWritesFilter}. Browsers never send credentials to any origin, so {@code *} is rejected then.
+ */
 @Configuration
 public class CorsConfig {
-    @Value("${cors.frontend.url}")
-    private String frontendUrl;
+
+    private final String frontendUrl;
+    private final boolean allowCredentials;
+
+    public CorsConfig(@Value("${cors.frontend.url}") String frontendUrl,
+                      @Value("${todo.replica.url:}") String replicaUrl) {
+        this.allowCredentials = !replicaUrl.isBlank();
+        this.frontendUrl = checkOrigin(frontendUrl, allowCredentials);
+    }
 
     @Bean
     public WebMvcConfigurer corsConfigurer() {
@@ -19,8 +31,16 @@ public class CorsConfig {
                 registry.addMapping("/api/**")
                         .allowedOrigins(frontendUrl)
                         .allowedMethods("GET","POST","PUT","PATCH","DELETE","OPTIONS")
-                        .allowedHeaders("*");
+                        .allowedHeaders("*")
+                        .allowCredentials(allowCredentials);
             }
         };
     }
+
+    static String checkOrigin(String frontendUrl, boolean allowCredentials) {
+        if (allowCredentials && frontendUrl.trim().equals("*"))
+            throw new IllegalArgumentException("cors.frontend.url cannot be '*' with replica routing, the" +
+                    " read-your-writes cookie is only sent to the origin named");
+        return frontendUrl;
+    }
 }
@@ -0,0 +1,25 @@
+package io.eskay.basictodo.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Lets the migrations run once per release instead of on every boot. The application then starts with
+ * {@code todo.migrate-on-boot} off, after a one-shot run with it on that exits once the context is refreshed:
+ * {@code java -Dspring.context.exit=onRefresh -jar app.jar --todo.migrate-on-boot=true}, see the Dockerfile.
+ * <p>
+ * A strategy rather than {@code spring.flyway.enabled}, which an ahead-of-time processed build fixes when built.
+ */
+@Configuration
+public class FlywayConfig {
+
+    @Bean
+    public FlywayMigrationStrategy flywayMigrationStrategy(@Value("${todo.migrate-on-boot}") boolean migrateOnBoot) {
+        return flyway -> {
+            if (migrateOnBoot)
+                flyway.migrate();
+        };
+    }
+}
@@ -0,0 +1,54 @@
+package io.eskay.basictodo.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.WebUtils;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Set;
+
+/**
+ * Gives a client read-your-writes on top of a lagging replica. A request that may write hands out a cookie that
+ * lives as long as the replica may lag, and requests carrying it read from the primary. The cookie is set before
+ * the request runs, as the response may be committed by the time its write is known.
+ */
+class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    static final String COOKIE_NAME = "todo-read-primary";
+
+    private static final Set<String> SAFE_METHODS = Set.of(
+            HttpMethod.GET.name(), HttpMethod.HEAD.name(), HttpMethod.OPTIONS.name());
+
+    private final int cookieMaxAge;
+
+    ReadYourWritesFilter(Duration maxLag) {
+        // whole seconds, rounded up so the cookie never expires before the replica caught up
+        this.cookieMaxAge = (int) Math.max(1, (maxLag.toMillis() + 999) / 1000);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        var writing = !SAFE_METHODS.contains(request.getMethod());
+        if (writing) {
+            var cookie = new Cookie(COOKIE_NAME, "1");
+            cookie.setPath("/");
+            cookie.setHttpOnly(true);
+            cookie.setMaxAge(cookieMaxAge);
+            response.addCookie(cookie);
+        }
+
+        ReplicaRouting.beginRequest(writing || WebUtils.getCookie(request, COOKIE_NAME) != null);
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            ReplicaRouting.endRequest();
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package io.eskay.basictodo.config;
+
+import java.util.function.Supplier;
+
+/**
+ * Per-thread choice between the primary and the replica for read-only transactions, see
+ * {@link ReplicaRoutingConfig}. Without a replica configured every read is on the primary anyway and nothing here
+ * has an effect.
+ */
+public final class ReplicaRouting {
+
+    private static final ThreadLocal<Boolean> PINNED_TO_PRIMARY = new ThreadLocal<>();
+    private static final ThreadLocal<Boolean> IN_REQUEST = new ThreadLocal<>();
+
+    private ReplicaRouting() {
+    }
+
+    /**
+     * Runs {@code work} with its read-only transactions on the primary, for reads that must not lag behind it.
+     */
+    public static <T> T onPrimary(Supplier<T> work) {
+        var previous = PINNED_TO_PRIMARY.get();
+        PINNED_TO_PRIMARY.set(Boolean.TRUE);
+        try {
+            return work.get();
+        } finally {
+            PINNED_TO_PRIMARY.set(previous);
+        }
+    }
+
+    public static void runOnPrimary(Runnable work) {
+        onPrimary(() -> {
+            work.run();
+            return null;
+        });
+    }
+
+    static boolean isPinnedToPrimary() {
+        return PINNED_TO_PRIMARY.get() == Boolean.TRUE;
+    }
+
+    static void beginRequest(boolean pinnedToPrimary) {
+        IN_REQUEST.set(Boolean.TRUE);
+        PINNED_TO_PRIMARY.set(pinnedToPrimary ? Boolean.TRUE : null);
+    }
+
+    static void endRequest() {
+        IN_REQUEST.remove();
+        PINNED_TO_PRIMARY.remove();
+    }
+
+    // reads later in the same request see the write, a background thread has no request to pin
+    static void wroteToPrimary() {
+        if (IN_REQUEST.get() == Boolean.TRUE)
+            PINNED_TO_PRIMARY.set(Boolean.TRUE);
+    }
+}
@@ -0,0 +1,12 @@
+package io.eskay.basictodo.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+@Configuration
+@EnableScheduling
+// class proxies, so event listener methods that are not on a service interface stay reachable
+@EnableAsync(proxyTargetClass = true)
+public class SchedulingConfig {
+}
@@ -1,26 +1,54 @@
 package io.eskay.basictodo.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.eskay.basictodo.dto.request.BulkCompleteTodosRequest;
 import io.eskay.basictodo.dto.request.CreateTodoRequest;
 import io.eskay.basictodo.dto.request.PatchTodoRequest;
 import io.eskay.basictodo.dto.request.UpdateTodoRequest;
+import io.eskay.basictodo.dto.response.BulkCompleteTodosResponse;
 import io.eskay.basictodo.dto.response.TodoDto;
+import io.eskay.basictodo.dto.response.TodoPageDto;
+import io.eskay.basictodo.dto.response.TodoStatsDto;
 import io.eskay.basictodo.exception.ExceptionResponse;
+import io.eskay.basictodo.service.TodoChangeFeed;
+import io.eskay.basictodo.service.TodoGeneration;
+import io.eskay.basictodo.service.TodoListFormat;
+import io.eskay.basictodo.service.TodoListResponseCache;
 import io.eskay.basictodo.service.TodoService;
+import io.eskay.basictodo.service.TodoStatsService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.ExampleObject;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Size;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
+import org.springframework.web.HttpMediaTypeNotAcceptableException;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
+import java.util.Locale;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 @RestController
 @RequestMapping("api/todos")
@@ -28,15 +56,45 @@ import java.util.List;
 @Tag(name = "Todo REST CRUD API")
 public class TodoController {
 
+    private static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
     private final TodoService todoService;
+    private final TodoStatsService todoStatsService;
+    private final TodoGeneration todoGeneration;
+    private final TodoChangeFeed todoChangeFeed;
+    private final TodoListResponseCache todoListResponseCache;
+    private final ObjectMapper objectMapper;
 
-    public TodoController(TodoService todoService) {
+    public TodoController(TodoService todoService,
+                          TodoStatsService todoStatsService,
+                          TodoGeneration todoGeneration,
+                          TodoChangeFeed todoChangeFeed,
+                          TodoListResponseCache todoListResponseCache,
+                          ObjectMapper objectMapper) {
         this.todoService = todoService;
+        this.todoStatsService = todoStatsService;
+        this.todoGeneration = todoGeneration;
+        this.todoChangeFeed = todoChangeFeed;
+        this.todoListResponseCache = todoListResponseCache;
+        this.objectMapper = objectMapper;
     }
     @Operation(summary = "Retrieve all todos", description = "Fetches all todos. Can accept an optional request-param" +
-            " 'completed' to filter todos by their completed status")
+            " 'completed' to filter todos by their completed status. The response carries an ETag that changes" +
+            " with any todo write, send it back in 'If-None-Match' to get a 304 while nothing changed. Sent as JSON," +
+            " or as the more compact CBOR or Smile when asked for in 'Accept'. Larger listings are sent gzipped" +
+            " to clients accepting it. Old completed todos are archived and only listed with 'includeArchived'")
     @GetMapping
-    public ResponseEntity<List<TodoDto>> getAllTodos(
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "OK", content = {
+                    @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            array = @ArraySchema(schema = @Schema(implementation = TodoDto.class))),
+                    @Content(mediaType = MediaType.APPLICATION_CBOR_VALUE,
+                            array = @ArraySchema(schema = @Schema(implementation = TodoDto.class))),
+                    @Content(mediaType = "application/x-jackson-smile",
+                            array = @ArraySchema(schema = @Schema(implementation = TodoDto.class)))}),
+            @ApiResponse(responseCode = "304", description = "Not Modified", content = @Content),
+    })
+    public ResponseEntity<byte[]> getAllTodos(
             @RequestParam(
                     value = "completed",
                     required = false
@@ -45,22 +103,193 @@ public class TodoController {
                     description = "filter todos by their completed status",
                     required = false,
                     schema = @Schema(type = "boolean", example = "/api/todos/?completed=false"))
-            Boolean isComplete
+            Boolean isComplete,
+            @RequestParam(value = "includeArchived", defaultValue = "false")
+            @Parameter(
+                    name = "includeArchived",
+                    description = "also list archived todos, which are all completed",
+                    required = false)
+            boolean includeArchived,
+            WebRequest webRequest,
+            HttpServletResponse servletResponse
+    ) throws HttpMediaTypeNotAcceptableException {
+        var format = TodoListFormat.negotiate(webRequest.getHeader(HttpHeaders.ACCEPT))
+                .orElseThrow(() -> new HttpMediaTypeNotAcceptableException(TodoListFormat.mediaTypes()));
+
+        // the tag only has to tell representations of this one url apart, so the filter is not part of it
+        var generation = todoGeneration.current();
+        var version = "%s-%d".formatted(todoGeneration.bootId(), generation);
+        var eTag = format == TodoListFormat.JSON
+                ? version
+                : "%s-%s".formatted(version, format.name().toLowerCase(Locale.ROOT));
+        var settling = todoGeneration.isSettling();
+        if (!settling && webRequest.checkNotModified(eTag)) {
+            // a 304 has to name what the 200 it stands for varies by
+            servletResponse.setHeader(HttpHeaders.VARY, "%s, %s".formatted(HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING));
+            return null;
+        }
 
+        Supplier<List<TodoDto>> todos = () -> isComplete == null
+                ? todoService.getAllTodos()
+                : todoService.getAllTodosByCompletedStatus(isComplete);
+        // archiving advances the generation like any write, so the tag still holds. Listings including the archive
+        // are not cached: they are rarely asked for and would crowd out the ones that are
+        if (includeArchived && !Boolean.FALSE.equals(isComplete)) {
+            var todosInUse = todos;
+            todos = () -> Stream.concat(todosInUse.get().stream(), todoService.getArchivedTodos().stream()).toList();
+        }
+        // a listing that may not show the latest write yet must not be served again for this generation
+        var acceptsGzip = acceptsGzip(webRequest.getHeader(HttpHeaders.ACCEPT_ENCODING));
+        var listing = settling || includeArchived
+                ? todoListResponseCache.render(format, generation, todos.get())
+                : todoListResponseCache.get(isComplete, format, generation, acceptsGzip, todos);
+
+        var response = ResponseEntity.ok()
+                .contentType(format.mediaType())
+                .varyBy(HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING);
+        if (acceptsGzip && listing.gzipped() != null) {
+            // the gzipped bytes are another representation, so they only get the tag as a weak one, like Tomcat's
+            // own compression does. If-None-Match compares weakly, so either tag still revalidates
+            if (!settling)
+                servletResponse.setHeader(HttpHeaders.ETAG, "W/\"%s\"".formatted(eTag));
+            return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(listing.gzipped());
+        }
+        return response.body(listing.body());
+    }
+
+    @Operation(summary = "Retrieve a page of todos", description = "Fetches up to 'limit' todos ordered by creation date." +
+            " Pass the 'nextCursor' of a page as 'cursor' to fetch the page after it. Can accept an optional" +
+            " request-param 'completed' to filter todos by their completed status")
+    @GetMapping("page")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "OK",
+                    content = @Content(schema = @Schema(implementation = TodoPageDto.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid Request",
+                    content = @Content(schema = @Schema(implementation = ExceptionResponse.class),
+                            examples = @ExampleObject(value = """
+                            {
+                              "status": 400,
+                              "error": "BAD REQUEST",
+                              "message": "limit must be at most 500",
+                              "timestamp": "2025-07-22T14:05:03.043+00:00"
+                            }
+                            """))),
+    })
+    public ResponseEntity<TodoPageDto> getTodosPage(
+            @RequestParam(value = "completed", required = false)
+            @Parameter(
+                    name = "completed",
+                    description = "filter todos by their completed status",
+                    required = false)
+            Boolean isComplete,
+            @RequestParam(value = "cursor", required = false)
+            @Parameter(
+                    name = "cursor",
+                    description = "'nextCursor' of the previous page, omit to fetch the first page",
+                    required = false)
+            String cursor,
+            @RequestParam(value = "limit", defaultValue = "50")
+            @Min(value = 1, message = "limit must be at least 1")
+            @Max(value = 500, message = "limit must be at most 500")
+            @Parameter(
+                    name = "limit",
+                    description = "maximum number of todos in the page",
+                    required = false)
+            int limit
     ) {
-        List<TodoDto> todos;
+        TodoPageDto page;
         if (isComplete == null)
-            todos = todoService.getAllTodos();
+            page = todoService.getTodosPage(cursor, limit);
         else
-            todos = todoService.getAllTodosByCompletedStatus(isComplete);
-        return ResponseEntity.ok(todos);
+            page = todoService.getTodosPageByCompletedStatus(isComplete, cursor, limit);
+        return ResponseEntity.ok(page);
     }
 
-    @Operation(summary = "Retrieve todo object", description = "Fetch todo with {id}")
+    @Operation(summary = "Search todos by name", description = "Fetches up to 'limit' todos, ordered by id, whose" +
+            " name contains 'q', ignoring case")
+    @GetMapping("search")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "OK"),
+            @ApiResponse(responseCode = "400", description = "Invalid Request",
+                    content = @Content(schema = @Schema(implementation = ExceptionResponse.class),
+                            examples = @ExampleObject(value = """
+                            {
+                              "status": 400,
+                              "error": "BAD REQUEST",
+                              "message": "q must be at least 3 chars",
+                              "timestamp": "2025-07-22T14:05:03.043+00:00"
+                            }
+                            """))),
+    })
+    public ResponseEntity<List<TodoDto>> searchTodos(
+            @RequestParam("q")
+            @NotBlank(message = "q cannot be empty")
+            @Size(min = 3, message = "q must be at least 3 chars")
+            @Parameter(
+                    name = "q",
+                    description = "text the todo names have to contain",
+                    required = true)
+            String query,
+            @RequestParam(value = "limit", defaultValue = "50")
+            @Min(value = 1, message = "limit must be at least 1")
+            @Max(value = 500, message = "limit must be at most 500")
+            @Parameter(
+                    name = "limit",
+                    description = "maximum number of todos returned",
+                    required = false)
+            int limit
+    ) {
+        return ResponseEntity.ok(todoService.searchTodos(query, limit));
+    }
+
+    @Operation(summary = "Export all todos", description = "Streams every todo as newline-delimited JSON," +
+            " one todo object per line, while it is being read from the database. The todos in use come first," +
+            " followed by the archived todos")
+    @GetMapping(value = "export", produces = "application/x-ndjson")
+    @ApiResponse(responseCode = "200", description = "OK",
+            content = @Content(mediaType = "application/x-ndjson",
+                    schema = @Schema(implementation = TodoDto.class)))
+    public ResponseEntity<StreamingResponseBody> exportTodos() {
+        StreamingResponseBody body = outputStream -> {
+            try (var generator = objectMapper.createGenerator(outputStream)
+                    .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)) {
+                generator.setRootValueSeparator(null);
+                todoService.exportTodos(todo -> writeLine(generator, todo));
+            }
+        };
+        return ResponseEntity.ok().contentType(APPLICATION_NDJSON).body(body);
+    }
+
+    @Operation(summary = "Subscribe to todo changes", description = "Streams every committed todo change as a" +
+            " server-sent event named after the change: 'created', 'updated', 'patched' and 'deleted' carry the" +
+            " todo, 'completed' carries the 'ids' (null for all todos), 'completed' status and number of todos 'updated' of a bulk update," +
+            " 'archived' carries the 'ids' of todos moved to the archive and 'changed' carries the 'ids' (null for" +
+            " all todos) of todos written through another instance." +
+            " Subscribers that fall too far behind are disconnected and should reload the todos when they reconnect")
+    @GetMapping(value = "events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @ApiResponse(responseCode = "200", description = "OK",
+            content = @Content(mediaType = MediaType.TEXT_EVENT_STREAM_VALUE))
+    public SseEmitter getTodoEvents() {
+        return todoChangeFeed.subscribe();
+    }
+
+    @Operation(summary = "Retrieve todo statistics", description = "Fetches the total, completed and pending" +
+            " todo counts and the number of todos created per day over the last days")
+    @GetMapping("stats")
+    @ApiResponse(responseCode = "200", description = "OK",
+            content = @Content(schema = @Schema(implementation = TodoStatsDto.class)))
+    public ResponseEntity<TodoStatsDto> getTodoStats() {
+        return ResponseEntity.ok(todoStatsService.getStats());
+    }
+
+    @Operation(summary = "Retrieve todo object", description = "Fetch todo with {id}. The response carries an ETag" +
+            " of the todo's version, send it back in 'If-None-Match' to get a 304 while the todo is unchanged." +
+            " Archived todos are only found with 'includeArchived'")
     @GetMapping("{id}")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "OK",
                     content = @Content(schema = @Schema(implementation = TodoDto.class))),
+            @ApiResponse(responseCode = "304", description = "Not Modified", content = @Content),
             @ApiResponse(responseCode = "404", description = "Todo Not Found",
                     content = @Content(schema = @Schema(implementation = ExceptionResponse.class),
                             examples = @ExampleObject(value = """
@@ -77,9 +306,17 @@ public class TodoController {
              @Parameter(
                      name = "id",
                      description = "{id} of todo object",
-                     required = true) Long id) {
-        var todo = todoService.getTodo(id);
-        return ResponseEntity.ok(todo);
+                     required = true) Long id,
+             @RequestParam(value = "includeArchived", defaultValue = "false")
+             @Parameter(
+                     name = "includeArchived",
+                     description = "look the todo up in the archive when it is not in use anymore",
+                     required = false) boolean includeArchived) {
+        var todo = includeArchived ? todoService.getTodoIncludingArchived(id) : todoService.getTodo(id);
+        // a matching If-None-Match turns this into a 304 before the body is written
+        return ResponseEntity.ok()
+                .eTag("%d-%d".formatted(todo.id(), todo.version()))
+                .body(todo);
     }
 
     @PostMapping
@@ -142,7 +379,7 @@ public class TodoController {
 //        return ResponseEntity.ok(updatedTodo);
 //    }
 
-    @Operation(summary = "Delete todo object", description = "Deletes a todo object with {id}")
+    @Operation(summary = "Delete todo object", description = "Deletes a todo object with {id}, archived or not")
     @ResponseStatus(HttpStatus.NO_CONTENT)
     @DeleteMapping("{id}")
     @ApiResponses(value = {
@@ -171,7 +408,8 @@ public class TodoController {
     }
 
     @PutMapping
-    @Operation(summary = "Update todo object", description = "Updates todo object using data provided in request-body")
+    @Operation(summary = "Update todo object", description = "Updates todo object using data provided in request-body." +
+            " An archived todo is moved back to the todos in use")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "OK",
                     content = @Content(schema = @Schema(implementation = TodoDto.class))),
@@ -202,7 +440,8 @@ public class TodoController {
     }
 
     @PatchMapping
-    @Operation(summary = "Patch todo object", description = "Updates todo object using data provided in request-body")
+    @Operation(summary = "Patch todo object", description = "Updates todo object using data provided in request-body." +
+            " An archived todo is moved back to the todos in use")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "OK",
                     content = @Content(schema = @Schema(implementation = TodoDto.class))),
@@ -231,4 +470,52 @@ public class TodoController {
         var patchedTodo = todoService.patchTodo(request);
         return ResponseEntity.ok(patchedTodo);
     }
+
+    @PatchMapping("completed")
+    @Operation(summary = "Check or uncheck many todos as completed",
+            description = "Sets the 'completed' status of every todo in 'ids' in one go. 'ids' is required" +
+                    " unless 'all' is true, which applies the status to all todos in use and needs 'ids' left out." +
+                    " Archived todos in 'ids' are moved back to the todos in use, ids that do not exist are" +
+                    " reported in 'missingIds'. 'updated' counts the todos whose status changed")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "OK",
+                    content = @Content(schema = @Schema(implementation = BulkCompleteTodosResponse.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid Request",
+                    content = @Content(schema = @Schema(implementation = ExceptionResponse.class),
+                            examples = @ExampleObject(value = """
+                            {
+                              "status": 400,
+                              "error": "BAD REQUEST",
+                              "message": "completed status cannot be empty",
+                              "timestamp": "2025-07-22T14:05:03.043+00:00"
+                            }
+                            """))),
+    })
+    public ResponseEntity<BulkCompleteTodosResponse> toggleCompletedStatus(
+            @RequestBody @Valid BulkCompleteTodosRequest request) {
+        var result = todoService.toggleCompletedStatus(request);
+        return ResponseEntity.ok(result);
+    }
+
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null)
+            return false;
+        for (var coding : acceptEncoding.split(",")) {
+            var parts = coding.split(";");
+            if (!parts[0].trim().equalsIgnoreCase("gzip"))
+                continue;
+            // 'gzip;q=0' turns it down
+            return parts.length == 1 || !parts[1].replace(" ", "").matches("q=0(\\.0*)?");
+        }
+        return false;
+    }
+
+    private void writeLine(JsonGenerator generator, TodoDto todo) {
+        try {
+            generator.writeObject(todo);
+            generator.writeRaw('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
 }
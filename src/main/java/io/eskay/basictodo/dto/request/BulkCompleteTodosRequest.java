@@ -0,0 +1,41 @@
+package io.eskay.basictodo.dto.request;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.validation.constraints.AssertTrue;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+/**
+ * Sets the completed status of the todos in {@code ids}, or of every todo in use when {@code all} is true. A
+ * request without ids never means every todo, so a client that loses its ids cannot update the whole table.
+ */
+public record BulkCompleteTodosRequest(
+        @Size(max = 1000, message = "ids cannot contain more than 1000 entries")
+        List<@NotNull(message = "ids cannot contain empty values")
+             @Min(value = 1, message = "ids must be greater than or equal to 1") Long> ids,
+
+        boolean all,
+
+        @NotNull(message = "completed status cannot be empty")
+        Boolean completed
+) {
+
+    public BulkCompleteTodosRequest(List<Long> ids, Boolean completed) {
+        this(ids, false, completed);
+    }
+
+    @JsonIgnore
+    @AssertTrue(message = "ids cannot be empty, set all to true to update every todo")
+    public boolean isIdsOrAllPresent() {
+        return all || (ids != null && !ids.isEmpty());
+    }
+
+    @JsonIgnore
+    @AssertTrue(message = "ids must be left out when all is true")
+    public boolean isIdsLeftOutForAll() {
+        return !all || ids == null;
+    }
+}
@@ -1,5 +1,6 @@
 package io.eskay.basictodo.dto.request;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
@@ -14,4 +15,16 @@ public record PatchTodoRequest(
 
         Boolean completed
 ) {
+
+    //Only apply the name when it is not blank and has a min of 4chars
+    @JsonIgnore
+    public boolean isNameApplied() {
+        return name != null && !name.isBlank() && name.length() >= 4;
+    }
+
+    //A null completed status leaves the current one untouched
+    @JsonIgnore
+    public boolean isNoOp() {
+        return !isNameApplied() && completed == null;
+    }
 }
@@ -0,0 +1,8 @@
+package io.eskay.basictodo.dto.response;
+
+import java.util.List;
+
+public record BulkCompleteTodosResponse(
+        int updated,
+        List<Long> missingIds) {
+}
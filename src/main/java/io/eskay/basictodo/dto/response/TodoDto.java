@@ -6,5 +6,6 @@ public record TodoDto(
         Long id,
         String name,
         LocalDate created_at,
-        boolean completed) {
+        boolean completed,
+        long version) {
 }
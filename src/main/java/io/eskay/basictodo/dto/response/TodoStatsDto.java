@@ -0,0 +1,11 @@
+package io.eskay.basictodo.dto.response;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+public record TodoStatsDto(
+        long total,
+        long completed,
+        long pending,
+        Map<LocalDate, Long> createdPerDay) {
+}
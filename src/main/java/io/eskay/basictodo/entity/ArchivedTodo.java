@@ -0,0 +1,37 @@
+package io.eskay.basictodo.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+import java.time.LocalDate;
+
+/**
+ * A completed todo moved out of {@code basic_todo}, keeping its id and version. Rows are only ever inserted by
+ * the archiver's insert-select, never through this entity.
+ */
+@Builder
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "basic_todo_archive")
+public class ArchivedTodo {
+    @Id
+    @Column(name = "id")
+    private Long id;
+
+    @Column(name = "name")
+    private String name;
+
+    @Column(name = "created_at")
+    private LocalDate createdAt;
+
+    @Column(name = "version")
+    private long version;
+
+    // set by the database when the todo was archived
+    @Column(name = "archived_at", insertable = false, updatable = false)
+    private Instant archivedAt;
+}
@@ -16,7 +16,8 @@ import java.util.Objects;
 @Table(name = "basic_todo")
 public class Todo {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "basic_todo_seq")
+    @SequenceGenerator(name = "basic_todo_seq", sequenceName = "basic_todo_seq", allocationSize = 50)
     @Column(name = "id")
     private Long id;
 
@@ -30,6 +31,10 @@ public class Todo {
     @Column(name = "completed")
     private boolean completed;
 
+    @Version
+    @Column(name = "version")
+    private long version;
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -0,0 +1,31 @@
+package io.eskay.basictodo.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+@Builder
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "todo_outbox")
+public class TodoOutboxEntry {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id")
+    private Long id;
+
+    // null when every todo changed
+    @Column(name = "todo_id")
+    private Long todoId;
+
+    @Column(name = "node_id")
+    private String nodeId;
+
+    // set by the database when the writing transaction started
+    @Column(name = "created_at", insertable = false, updatable = false)
+    private Instant createdAt;
+}
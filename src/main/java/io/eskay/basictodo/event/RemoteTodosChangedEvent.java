@@ -0,0 +1,11 @@
+package io.eskay.basictodo.event;
+
+import java.util.Collection;
+
+/**
+ * Published when the outbox shows todos were written by another node.
+ * {@code ids} is null when every todo may have changed.
+ */
+public record RemoteTodosChangedEvent(
+        Collection<Long> ids) {
+}
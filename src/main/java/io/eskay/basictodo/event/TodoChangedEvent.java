@@ -0,0 +1,24 @@
+package io.eskay.basictodo.event;
+
+import io.eskay.basictodo.dto.response.TodoDto;
+
+/**
+ * Published by the todo service after a single todo was written.
+ * {@code previous} is null for created todos and {@code current} is null for deleted ones.
+ */
+public record TodoChangedEvent(
+        Type type,
+        TodoDto previous,
+        TodoDto current) {
+
+    public enum Type {
+        CREATED,
+        UPDATED,
+        PATCHED,
+        DELETED
+    }
+
+    public Long todoId() {
+        return current != null ? current.id() : previous.id();
+    }
+}
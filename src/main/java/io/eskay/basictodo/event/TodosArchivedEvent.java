@@ -0,0 +1,10 @@
+package io.eskay.basictodo.event;
+
+import java.util.Collection;
+
+/**
+ * Published by the archiver after the completed todos with {@code ids} were moved to the archive table.
+ */
+public record TodosArchivedEvent(
+        Collection<Long> ids) {
+}
@@ -0,0 +1,14 @@
+package io.eskay.basictodo.event;
+
+import java.util.Collection;
+
+/**
+ * Published by the todo service after the completed status of many todos was set at once.
+ * {@code ids} is null when the update applied to every todo, {@code updated} is the number of todos whose status
+ * changed.
+ */
+public record TodosBulkUpdatedEvent(
+        Collection<Long> ids,
+        boolean completed,
+        int updated) {
+}
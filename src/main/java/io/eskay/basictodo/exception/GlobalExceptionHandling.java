@@ -3,6 +3,7 @@ package io.eskay.basictodo.exception;
 import jakarta.validation.ConstraintViolation;
 import jakarta.validation.ConstraintViolationException;
 import org.springframework.context.support.DefaultMessageSourceResolvable;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.HttpStatusCode;
 import org.springframework.http.ResponseEntity;
@@ -29,6 +30,22 @@ public class GlobalExceptionHandling {
         return ResponseEntity.status(HttpStatus.NOT_FOUND).body(error);
     }
 
+    @ExceptionHandler(ServiceOverloadedException.class)
+    public ResponseEntity<ExceptionResponse> handleException (ServiceOverloadedException e) {
+        var error = new ExceptionResponse(
+                HttpStatusCode.valueOf(503).value(),
+                HttpStatus.SERVICE_UNAVAILABLE,
+                e.getMessage(),
+                Timestamp.valueOf(LocalDateTime.now())
+        );
+
+        // whole seconds, rounded up so clients do not come back early
+        var retryAfterSeconds = Math.max(1, (e.getRetryAfter().toMillis() + 999) / 1000);
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds))
+                .body(error);
+    }
+
     @ExceptionHandler(IllegalArgumentException.class)
     public ResponseEntity<ExceptionResponse> handleException (IllegalArgumentException e) {
         var error = new ExceptionResponse(
@@ -15,7 +15,8 @@ public class TodoDtoMapper implements Function<Todo, TodoDto> {
                 todo.getId(),
                 todo.getName(),
                 todo.getCreatedAt(),
-                todo.isCompleted()
+                todo.isCompleted(),
+                todo.getVersion()
         );
     }
 }
@@ -0,0 +1,34 @@
+package io.eskay.basictodo.pagination;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Position of the last todo returned in a page, ordered by {@code (created_at, id)}.
+ * Clients only ever see the encoded form and hand it back untouched to get the next page.
+ */
+public record TodoCursor(LocalDate createdAt, Long id) {
+
+    private static final char SEPARATOR = ':';
+
+    public String encode() {
+        var raw = createdAt.toString() + SEPARATOR + id;
+        return Base64.getUrlEncoder()
+                .withoutPadding()
+                .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static TodoCursor decode(String cursor) {
+        try {
+            var raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            var separatorIndex = raw.indexOf(SEPARATOR);
+            return new TodoCursor(
+                    LocalDate.parse(raw.substring(0, separatorIndex)),
+                    Long.parseLong(raw.substring(separatorIndex + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+            throw new IllegalArgumentException("cursor '%s' is invalid, check and try again".formatted(cursor));
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package io.eskay.basictodo.repository;
+
+import io.eskay.basictodo.dto.response.TodoDto;
+import io.eskay.basictodo.entity.ArchivedTodo;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+@Repository
+public interface TodoArchiveRepository extends JpaRepository<ArchivedTodo, Long> {
+
+    /**
+     * Copies the todos with {@code ids} from {@code basic_todo} with a single statement, the caller deletes them
+     * there in the same transaction.
+     */
+    @Modifying
+    @Query(value = """
+            insert into basic_todo_archive (id, name, created_at, version)
+            select id, name, created_at, version from basic_todo where id in :ids""", nativeQuery = true)
+    int insertFromTodos(Collection<Long> ids);
+
+    /**
+     * Ids of the archived todos among {@code ids}, locked until the transaction ends, so a todo is only restored
+     * once when written to concurrently.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select a.id from ArchivedTodo a where a.id in :ids")
+    List<Long> lockIdsByIdIn(Collection<Long> ids);
+
+    /**
+     * Copies the archived todos with {@code ids} back to {@code basic_todo}, completed and with their version, the
+     * caller deletes them here in the same transaction.
+     */
+    @Modifying
+    @Query(value = """
+            insert into basic_todo (id, name, created_at, completed, version)
+            select id, name, created_at, true, version from basic_todo_archive where id in :ids""", nativeQuery = true)
+    int restoreTodos(Collection<Long> ids);
+
+    @Modifying
+    @Query("delete from ArchivedTodo a where a.id in :ids")
+    int deleteAllByIdIn(Collection<Long> ids);
+
+    /**
+     * Moves the archived todos among {@code ids} back to {@code basic_todo}, where they can be written like any
+     * other todo, and returns their ids. Only looked up once a write found no todo in use.
+     */
+    default List<Long> restore(Collection<Long> ids) {
+        if (ids.isEmpty())
+            return List.of();
+        var archivedIds = lockIdsByIdIn(ids);
+        if (archivedIds.isEmpty())
+            return List.of();
+        restoreTodos(archivedIds);
+        deleteAllByIdIn(archivedIds);
+        return archivedIds;
+    }
+
+    @Transactional(readOnly = true)
+    @Query("""
+            select new io.eskay.basictodo.dto.response.TodoDto(a.id, a.name, a.createdAt, true, a.version)
+            from ArchivedTodo a
+            """)
+    List<TodoDto> findAllTodoDtos();
+
+    @Transactional(readOnly = true)
+    @Query("""
+            select new io.eskay.basictodo.dto.response.TodoDto(a.id, a.name, a.createdAt, true, a.version)
+            from ArchivedTodo a
+            where a.id = :id
+            """)
+    Optional<TodoDto> findTodoDtoById(Long id);
+
+    /**
+     * Streams every archived todo like {@link TodoRepository#streamAllTodos()}, 500 rows per round trip. Must be
+     * consumed inside a transaction and closed afterwards.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("""
+            select new io.eskay.basictodo.dto.response.TodoDto(a.id, a.name, a.createdAt, true, a.version)
+            from ArchivedTodo a
+            order by a.id
+            """)
+    Stream<TodoDto> streamAllTodos();
+
+    @Query("""
+            select new io.eskay.basictodo.repository.TodoDailyCount(a.createdAt, count(a))
+            from ArchivedTodo a
+            where a.createdAt >= :since
+            group by a.createdAt
+            """)
+    List<TodoDailyCount> countCreatedPerDaySince(LocalDate since);
+}
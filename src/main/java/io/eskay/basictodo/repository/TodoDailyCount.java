@@ -0,0 +1,8 @@
+package io.eskay.basictodo.repository;
+
+import java.time.LocalDate;
+
+public record TodoDailyCount(
+        LocalDate day,
+        Long count) {
+}
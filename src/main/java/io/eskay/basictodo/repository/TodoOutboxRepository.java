@@ -0,0 +1,46 @@
+package io.eskay.basictodo.repository;
+
+import io.eskay.basictodo.entity.TodoOutboxEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface TodoOutboxRepository extends JpaRepository<TodoOutboxEntry, Long> {
+
+    /**
+     * Records a write to the todo with {@code todoId}, or to every todo when it is null.
+     */
+    @Modifying
+    @Query(value = """
+            insert into todo_outbox (todo_id, node_id)
+            values (cast(:todoId as bigint), :nodeId)""", nativeQuery = true)
+    int insertForTodo(Long todoId, String nodeId);
+
+    /**
+     * Records a write to each of the existing todos in {@code todoIds} with a single statement.
+     */
+    @Modifying
+    @Query(value = """
+            insert into todo_outbox (todo_id, node_id)
+            select id, :nodeId from basic_todo where id in :todoIds""", nativeQuery = true)
+    int insertForTodos(Collection<Long> todoIds, String nodeId);
+
+    @Query("select e from TodoOutboxEntry e where e.createdAt >= :since order by e.id")
+    List<TodoOutboxEntry> findCreatedSince(Instant since);
+
+    // on the database's clock, the one rows are stamped with
+    @Query("select coalesce(max(e.createdAt), instant) from TodoOutboxEntry e")
+    Instant findNewestCreatedAt();
+
+    @Modifying
+    @Transactional
+    @Query("delete from TodoOutboxEntry e where e.createdAt < :cutoff")
+    int deleteCreatedBefore(Instant cutoff);
+}
@@ -1,12 +1,152 @@
 package io.eskay.basictodo.repository;
 
+import io.eskay.basictodo.dto.response.TodoDto;
 import io.eskay.basictodo.entity.Todo;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.hibernate.jpa.SpecHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface TodoRepository extends JpaRepository<Todo,Long> {
+public interface TodoRepository extends JpaRepository<Todo,Long>, TodoRepositoryCustom {
     List<Todo> findAllByCompleted(boolean isComplete);
+
+    /**
+     * Every todo selected straight into {@link TodoDto}s, in a read-only transaction of its own unless it joins
+     * one. Nothing is registered in the persistence context, snapshotted for dirty checking or mapped afterwards.
+     */
+    @Transactional(readOnly = true)
+    @Query("""
+            select new io.eskay.basictodo.dto.response.TodoDto(t.id, t.name, t.createdAt, t.completed, t.version)
+            from Todo t
+            """)
+    List<TodoDto> findAllTodoDtos();
+
+    @Transactional(readOnly = true)
+    @Query("""
+            select new io.eskay.basictodo.dto.response.TodoDto(t.id, t.name, t.createdAt, t.completed, t.version)
+            from Todo t
+            where t.completed = :isComplete
+            """)
+    List<TodoDto> findAllTodoDtosByCompleted(boolean isComplete);
+
+    @Transactional(readOnly = true)
+    @Query("""
+            select new io.eskay.basictodo.dto.response.TodoDto(t.id, t.name, t.createdAt, t.completed, t.version)
+            from Todo t
+            where t.id = :id
+            """)
+    Optional<TodoDto> findTodoDtoById(Long id);
+
+    List<Todo> findAllByOrderByCreatedAtAscIdAsc(Limit limit);
+
+    @Query("""
+            select t from Todo t
+            where (t.createdAt, t.id) > (:createdAt, :id)
+            order by t.createdAt, t.id
+            """)
+    List<Todo> findAllAfter(LocalDate createdAt, Long id, Limit limit);
+
+    List<Todo> findAllByCompletedOrderByCreatedAtAscIdAsc(boolean isComplete, Limit limit);
+
+    @Query("""
+            select t from Todo t
+            where t.completed = :isComplete
+              and (t.createdAt, t.id) > (:createdAt, :id)
+            order by t.createdAt, t.id
+            """)
+    List<Todo> findAllByCompletedAfter(boolean isComplete, LocalDate createdAt, Long id, Limit limit);
+
+    /**
+     * Streams every todo straight into {@link TodoDto}s, 500 rows per round trip, without registering
+     * entities in the persistence context. Must be consumed inside a transaction and closed afterwards.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("""
+            select new io.eskay.basictodo.dto.response.TodoDto(t.id, t.name, t.createdAt, t.completed, t.version)
+            from Todo t
+            order by t.id
+            """)
+    Stream<TodoDto> streamAllTodos();
+
+    /**
+     * Sets the completed status of the todos in {@code ids} that do not have it yet, so the count returned is the
+     * number of todos whose status actually changed.
+     */
+    @Modifying
+    @Query("""
+            update Todo t set t.completed = :isComplete, t.version = t.version + 1
+            where t.id in :ids
+              and t.completed <> :isComplete""")
+    int updateCompletedByIdIn(Collection<Long> ids, boolean isComplete);
+
+    @Modifying
+    @Query("""
+            update Todo t set t.completed = :isComplete, t.version = t.version + 1
+            where t.completed <> :isComplete""")
+    int updateCompletedForAll(boolean isComplete);
+
+    /**
+     * Writes completed status changes buffered by the write-behind mode, {@code writes} of them per todo.
+     */
+    @Modifying
+    @Transactional
+    @Query("""
+            update Todo t set t.completed = :isComplete, t.version = t.version + :writes
+            where t.id in :ids""")
+    int updateCompletedAndVersionByIdIn(Collection<Long> ids, boolean isComplete, long writes);
+
+    List<Todo> findAllByIdInOrderByIdAsc(Collection<Long> ids);
+
+    /**
+     * Scans every name, only used for searches while the in-memory name index is loading.
+     */
+    List<Todo> findAllByNameContainingIgnoreCaseOrderByIdAsc(String name, Limit limit);
+
+    @Query("select t.id from Todo t where t.id in :ids")
+    List<Long> findIdsByIdIn(Collection<Long> ids);
+
+    /**
+     * Ids of up to {@code limit} completed todos created before {@code cutoff}, oldest first, locked until the
+     * transaction ends. Rows another transaction holds are skipped rather than waited for, so archiving never
+     * queues up behind a write and concurrent archivers take disjoint chunks.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    // -2 is Hibernate's lock timeout for SKIP LOCKED
+    @QueryHints(@QueryHint(name = SpecHints.HINT_SPEC_LOCK_TIMEOUT, value = "-2"))
+    @Query("""
+            select t.id from Todo t
+            where t.completed = true
+              and t.createdAt < :cutoff
+            order by t.createdAt, t.id
+            """)
+    List<Long> lockCompletedIdsCreatedBefore(LocalDate cutoff, Limit limit);
+
+    @Modifying
+    @Query("delete from Todo t where t.id in :ids")
+    int deleteAllByIdIn(Collection<Long> ids);
+
+    long countByCompleted(boolean isComplete);
+
+    @Query("""
+            select new io.eskay.basictodo.repository.TodoDailyCount(t.createdAt, count(t))
+            from Todo t
+            where t.createdAt >= :since
+            group by t.createdAt
+            """)
+    List<TodoDailyCount> countCreatedPerDaySince(LocalDate since);
 }
@@ -0,0 +1,22 @@
+package io.eskay.basictodo.repository;
+
+import io.eskay.basictodo.dto.response.TodoDto;
+
+import java.util.Optional;
+
+public interface TodoRepositoryCustom {
+    /**
+     * Updates the todo with {@code id} in place, without loading it first.
+     * A {@code null} name or completed status leaves the current value untouched.
+     *
+     * @return the todo before and after the update, or empty when no todo has that id
+     */
+    Optional<TodoUpdate> updateTodo(Long id, String name, Boolean completed);
+
+    /**
+     * Deletes the todo with {@code id} without loading it first.
+     *
+     * @return the deleted todo, or empty when no todo has that id
+     */
+    Optional<TodoDto> deleteTodo(Long id);
+}
@@ -0,0 +1,183 @@
+package io.eskay.basictodo.repository;
+
+import io.eskay.basictodo.dto.response.TodoDto;
+import io.eskay.basictodo.entity.Todo;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.dialect.H2Dialect;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.query.NativeQuery;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.Optional;
+
+public class TodoRepositoryCustomImpl implements TodoRepositoryCustom {
+
+    private static final String TODO_COLUMNS = "id, name, created_at, completed, version";
+
+    private final EntityManager entityManager;
+    // both null when the database cannot hand back the affected row from the statement itself
+    private final String updateTodoReturningSql;
+    private final String deleteTodoReturningSql;
+
+    public TodoRepositoryCustomImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+        var dialect = entityManager.getEntityManagerFactory()
+                .unwrap(SessionFactoryImplementor.class)
+                .getJdbcServices()
+                .getDialect();
+        this.updateTodoReturningSql = updateTodoReturningSql(dialect);
+        this.deleteTodoReturningSql = deleteTodoReturningSql(dialect);
+    }
+
+    @Override
+    @Transactional
+    public Optional<TodoUpdate> updateTodo(Long id, String name, Boolean completed) {
+        if (updateTodoReturningSql == null)
+            return selectThenUpdateTodo(id, name, completed);
+
+        // the row as the statement read and as it wrote it, both taken from the database
+        return queryTodo(updateTodoReturningSql, id)
+                .addScalar("current_name", String.class)
+                .addScalar("current_completed", Boolean.class)
+                .addScalar("current_version", Long.class)
+                .setParameter("name", name, String.class)
+                .setParameter("completed", completed, Boolean.class)
+                .getResultStream()
+                .findFirst()
+                .map(row -> {
+                    var previous = toTodoDto(row);
+                    return new TodoUpdate(previous, new TodoDto(
+                            previous.id(),
+                            (String) row[5],
+                            previous.created_at(),
+                            (Boolean) row[6],
+                            (Long) row[7]));
+                });
+    }
+
+    @Override
+    @Transactional
+    public Optional<TodoDto> deleteTodo(Long id) {
+        if (deleteTodoReturningSql == null)
+            return selectThenDeleteTodo(id);
+
+        return queryTodo(deleteTodoReturningSql, id)
+                .getResultStream()
+                .findFirst()
+                .map(TodoRepositoryCustomImpl::toTodoDto);
+    }
+
+    private NativeQuery<Object[]> queryTodo(String sql, Long id) {
+        // every column is added as a scalar below, so each row is an Object[]
+        @SuppressWarnings("unchecked")
+        NativeQuery<Object[]> query = entityManager.createNativeQuery(sql).unwrap(NativeQuery.class);
+        return query
+                .addSynchronizedEntityClass(Todo.class)
+                .addScalar("id", Long.class)
+                .addScalar("name", String.class)
+                .addScalar("created_at", LocalDate.class)
+                .addScalar("completed", Boolean.class)
+                .addScalar("version", Long.class)
+                .setParameter("id", id, Long.class);
+    }
+
+    private Optional<TodoUpdate> selectThenUpdateTodo(Long id, String name, Boolean completed) {
+        // locked, so the row cannot change between the select and the update
+        var previous = selectTodo(id, LockModeType.PESSIMISTIC_WRITE);
+        if (previous.isEmpty())
+            return Optional.empty();
+
+        entityManager.createQuery("""
+                        update Todo t
+                        set t.name = coalesce(:name, t.name),
+                            t.completed = coalesce(:completed, t.completed),
+                            t.version = t.version + 1
+                        where t.id = :id""")
+                .setParameter("id", id)
+                .setParameter("name", name)
+                .setParameter("completed", completed)
+                .executeUpdate();
+        return previous.map(todo -> new TodoUpdate(todo, new TodoDto(
+                todo.id(),
+                name != null ? name : todo.name(),
+                todo.created_at(),
+                completed != null ? completed : todo.completed(),
+                todo.version() + 1)));
+    }
+
+    private Optional<TodoDto> selectThenDeleteTodo(Long id) {
+        var deleted = selectTodo(id, LockModeType.NONE);
+        if (deleted.isEmpty())
+            return deleted;
+
+        entityManager.createQuery("delete from Todo t where t.id = :id")
+                .setParameter("id", id)
+                .executeUpdate();
+        return deleted;
+    }
+
+    private Optional<TodoDto> selectTodo(Long id, LockModeType lockMode) {
+        return entityManager.createQuery("""
+                        select new io.eskay.basictodo.dto.response.TodoDto(t.id, t.name, t.createdAt, t.completed, t.version)
+                        from Todo t
+                        where t.id = :id""", TodoDto.class)
+                .setParameter("id", id)
+                .setLockMode(lockMode)
+                .getResultStream()
+                .findFirst();
+    }
+
+    private static String updateTodoReturningSql(Dialect dialect) {
+        if (dialect instanceof PostgreSQLDialect)
+            // the row is locked before it is read, so under read committed a concurrent update of it is waited for
+            // and previous holds what that update committed, not what the statement's snapshot saw
+            return """
+                    with previous as (
+                        select %s from basic_todo where id = :id for update)
+                    update basic_todo
+                    set name = coalesce(cast(:name as text), basic_todo.name),
+                        completed = coalesce(cast(:completed as boolean), basic_todo.completed),
+                        version = basic_todo.version + 1
+                    from previous
+                    where basic_todo.id = previous.id
+                    returning previous.id, previous.name, previous.created_at, previous.completed, previous.version,
+                        basic_todo.name as current_name,
+                        basic_todo.completed as current_completed,
+                        basic_todo.version as current_version""".formatted(TODO_COLUMNS);
+        if (dialect instanceof H2Dialect)
+            // the old table is the locked row the update wrote, the new values are worked out from it the same way
+            return """
+                    select %s,
+                        coalesce(cast(:name as text), name) as current_name,
+                        coalesce(cast(:completed as boolean), completed) as current_completed,
+                        version + 1 as current_version
+                    from old table (
+                        update basic_todo
+                        set name = coalesce(cast(:name as text), name),
+                            completed = coalesce(cast(:completed as boolean), completed),
+                            version = version + 1
+                        where id = :id)""".formatted(TODO_COLUMNS);
+        return null;
+    }
+
+    private static String deleteTodoReturningSql(Dialect dialect) {
+        if (dialect instanceof PostgreSQLDialect)
+            return "delete from basic_todo where id = :id returning " + TODO_COLUMNS;
+        if (dialect instanceof H2Dialect)
+            return "select %s from old table (delete from basic_todo where id = :id)".formatted(TODO_COLUMNS);
+        return null;
+    }
+
+    private static TodoDto toTodoDto(Object[] row) {
+        return new TodoDto(
+                (Long) row[0],
+                (String) row[1],
+                (LocalDate) row[2],
+                (Boolean) row[3],
+                (Long) row[4]);
+    }
+}
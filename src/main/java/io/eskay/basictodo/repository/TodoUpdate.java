@@ -0,0 +1,11 @@
+package io.eskay.basictodo.repository;
+
+import io.eskay.basictodo.dto.response.TodoDto;
+
+/**
+ * State of a todo right before and right after an in-place update.
+ */
+public record TodoUpdate(
+        TodoDto previous,
+        TodoDto current) {
+}
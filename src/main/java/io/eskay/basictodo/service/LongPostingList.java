@@ -0,0 +1,68 @@
+package io.eskay.basictodo.service;
+
+import java.util.Arrays;
+
+/**
+ * Ascending, distinct todo ids in a growable {@code long[]}, so a list of millions of ids is one array and not
+ * millions of boxed {@code Long}s. Ids come from a sequence, so adding almost always appends. Not thread-safe.
+ */
+final class LongPostingList {
+
+    private long[] ids = new long[4];
+    private int size;
+
+    int size() {
+        return size;
+    }
+
+    long get(int index) {
+        return ids[index];
+    }
+
+    void add(long id) {
+        if (size > 0 && id <= ids[size - 1]) {
+            var index = Arrays.binarySearch(ids, 0, size, id);
+            if (index >= 0)
+                return;
+            insertAt(-index - 1, id);
+            return;
+        }
+        if (size == ids.length)
+            ids = Arrays.copyOf(ids, size * 2);
+        ids[size++] = id;
+    }
+
+    boolean remove(long id) {
+        var index = Arrays.binarySearch(ids, 0, size, id);
+        if (index < 0)
+            return false;
+        System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+        size--;
+        return true;
+    }
+
+    /**
+     * Index of the first id not below {@code id}, looking from {@code from} on, or {@link #size()} when there is
+     * none. Gallops ahead before the binary search, so walking a long list in steps costs little per step.
+     */
+    int seek(long id, int from) {
+        var step = 1;
+        var low = from;
+        var high = from;
+        while (high < size && ids[high] < id) {
+            low = high + 1;
+            high += step;
+            step <<= 1;
+        }
+        var index = Arrays.binarySearch(ids, low, Math.min(high + 1, size), id);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    private void insertAt(int index, long id) {
+        if (size == ids.length)
+            ids = Arrays.copyOf(ids, size * 2);
+        System.arraycopy(ids, index, ids, index + 1, size - index);
+        ids[index] = id;
+        size++;
+    }
+}
@@ -0,0 +1,117 @@
+package io.eskay.basictodo.service;
+
+import io.eskay.basictodo.config.CacheConfig;
+import io.eskay.basictodo.event.TodosArchivedEvent;
+import io.eskay.basictodo.repository.TodoArchiveRepository;
+import io.eskay.basictodo.repository.TodoRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.time.LocalDate;
+import java.time.Period;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Moves completed todos created more than {@code min-age} ago from {@code basic_todo} to
+ * {@code basic_todo_archive}, so the table and indexes every request goes through only hold the todos still in use.
+ * Todos are moved {@code chunk-size} at a time, each chunk in a transaction of its own that locks just its rows and
+ * skips rows other transactions hold, so a run never blocks writes for long and nodes archiving at the same time
+ * take different chunks.
+ * <p>
+ * A chunk is recorded in the outbox before its rows leave {@code basic_todo}, so other nodes drop what they
+ * cached about them like for any other write.
+ */
+@Component
+public class TodoArchiver {
+
+    private final TodoRepository repository;
+    private final TodoArchiveRepository archiveRepository;
+    private final TodoOutbox outbox;
+    private final TodoCompletionBuffer completionBuffer;
+    private final CacheManager cacheManager;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionOperations transactionOperations;
+    private final boolean enabled;
+    private final Period minAge;
+    private final int chunkSize;
+
+    // one run per node, two would skip each other's locked rows and each stop at its first short chunk
+    private final ReentrantLock archiveLock = new ReentrantLock();
+
+    public TodoArchiver(TodoRepository repository,
+                        TodoArchiveRepository archiveRepository,
+                        TodoOutbox outbox,
+                        TodoCompletionBuffer completionBuffer,
+                        CacheManager cacheManager,
+                        ApplicationEventPublisher eventPublisher,
+                        TransactionOperations transactionOperations,
+                        @Value("${todo.archive.enabled}") boolean enabled,
+                        @Value("${todo.archive.min-age}") Period minAge,
+                        @Value("${todo.archive.chunk-size}") int chunkSize) {
+        this.repository = repository;
+        this.archiveRepository = archiveRepository;
+        this.outbox = outbox;
+        this.completionBuffer = completionBuffer;
+        this.cacheManager = cacheManager;
+        this.eventPublisher = eventPublisher;
+        this.transactionOperations = transactionOperations;
+        this.enabled = enabled;
+        this.minAge = minAge;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Archives every completed todo old enough, chunk by chunk, until a chunk comes up short.
+     */
+    @Scheduled(initialDelayString = "${todo.archive.interval}", fixedDelayString = "${todo.archive.interval}")
+    public void archive() {
+        if (!enabled)
+            return;
+
+        archiveLock.lock();
+        try {
+            // the completed status the query below filters on has to include buffered changes
+            completionBuffer.flush();
+            var cutoff = LocalDate.now().minus(minAge);
+            Chunk chunk;
+            do {
+                chunk = transactionOperations.execute(status -> archiveChunk(cutoff));
+                // after the commit, a read in between would otherwise cache the todo again
+                var cache = cacheManager.getCache(CacheConfig.TODOS_CACHE);
+                chunk.archivedIds().forEach(cache::evict);
+            } while (chunk.lockedCount() == chunkSize && !chunk.archivedIds().isEmpty());
+        } finally {
+            archiveLock.unlock();
+        }
+    }
+
+    private Chunk archiveChunk(LocalDate cutoff) {
+        var lockedIds = repository.lockCompletedIdsCreatedBefore(cutoff, Limit.of(chunkSize));
+        // a change buffered since the flush above would be written to a row that is gone, these wait for next run.
+        // The buffer restores a todo archived here that a change is buffered for after this check
+        var ids = new ArrayList<Long>(lockedIds.size());
+        for (var id : lockedIds) {
+            if (completionBuffer.pending(id).isEmpty())
+                ids.add(id);
+        }
+        if (ids.isEmpty())
+            return new Chunk(lockedIds.size(), List.of());
+
+        // only rows still in basic_todo are recorded
+        outbox.recordChanged(ids);
+        archiveRepository.insertFromTodos(ids);
+        repository.deleteAllByIdIn(ids);
+        eventPublisher.publishEvent(new TodosArchivedEvent(ids));
+        return new Chunk(lockedIds.size(), ids);
+    }
+
+    private record Chunk(int lockedCount, List<Long> archivedIds) {
+    }
+}
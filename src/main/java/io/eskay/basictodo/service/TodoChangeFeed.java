@@ -0,0 +1,180 @@
+package io.eskay.basictodo.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.eskay.basictodo.event.RemoteTodosChangedEvent;
+import io.eskay.basictodo.event.TodoChangedEvent;
+import io.eskay.basictodo.event.TodosArchivedEvent;
+import io.eskay.basictodo.event.TodosBulkUpdatedEvent;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Pushes committed todo changes to subscribed clients as server-sent events, so they do not have to poll.
+ * An idle subscriber is only an open async request and holds no thread. Each change is serialized once and queued
+ * for every subscriber, and a queue is drained on a virtual thread only while it has something to send.
+ * A subscriber whose queue fills up cannot keep up and is disconnected; it reconnects and reloads the todos.
+ */
+@Service
+public class TodoChangeFeed {
+
+    private static final Duration RECONNECT_TIME = Duration.ofSeconds(3);
+
+    private final ObjectMapper objectMapper;
+    private final Executor sendExecutor;
+    private final int bufferSize;
+    private final Duration timeout;
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+    @Autowired
+    public TodoChangeFeed(ObjectMapper objectMapper,
+                          @Value("${todo.feed.buffer-size}") int bufferSize,
+                          @Value("${todo.feed.timeout}") Duration timeout) {
+        this(objectMapper, Executors.newVirtualThreadPerTaskExecutor(), bufferSize, timeout);
+    }
+
+    TodoChangeFeed(ObjectMapper objectMapper, Executor sendExecutor, int bufferSize, Duration timeout) {
+        this.objectMapper = objectMapper;
+        this.sendExecutor = sendExecutor;
+        this.bufferSize = bufferSize;
+        this.timeout = timeout;
+    }
+
+    public SseEmitter subscribe() {
+        var subscriber = new Subscriber(new SseEmitter(timeout.toMillis()), new ArrayBlockingQueue<>(bufferSize));
+        subscriber.emitter().onCompletion(() -> subscribers.remove(subscriber));
+        subscriber.emitter().onTimeout(subscriber.emitter()::complete);
+        subscriber.emitter().onError(error -> subscribers.remove(subscriber));
+        subscribers.add(subscriber);
+
+        // sent right away, so the client sees the stream is open before the first change
+        enqueue(subscriber, SseEmitter.event()
+                .reconnectTime(RECONNECT_TIME.toMillis())
+                .comment("subscribed")
+                .build());
+        return subscriber.emitter();
+    }
+
+    public int subscriberCount() {
+        return subscribers.size();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTodoChanged(TodoChangedEvent event) {
+        // deleted todos are sent as they were before the delete
+        var todo = event.current() != null ? event.current() : event.previous();
+        publish(event.type().name().toLowerCase(Locale.ROOT), todo);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTodosBulkUpdated(TodosBulkUpdatedEvent event) {
+        publish("completed", event);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTodosArchived(TodosArchivedEvent event) {
+        publish("archived", event);
+    }
+
+    // only the ids of todos written on other nodes are known, subscribers reload them
+    @EventListener
+    public void onRemoteTodosChanged(RemoteTodosChangedEvent event) {
+        publish("changed", event);
+    }
+
+    // keeps idle connections open through proxies, and finds subscribers that went away without closing them
+    @Scheduled(fixedDelayString = "${todo.feed.heartbeat-interval}")
+    public void heartbeat() {
+        broadcast(SseEmitter.event().comment("heartbeat").build());
+    }
+
+    @PreDestroy
+    public void close() {
+        subscribers.forEach(subscriber -> subscriber.emitter().complete());
+        if (sendExecutor instanceof ExecutorService executorService)
+            executorService.close();
+    }
+
+    private void publish(String name, Object data) {
+        if (subscribers.isEmpty())
+            return;
+
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(data);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("could not serialize todo change " + name, e);
+        }
+        broadcast(SseEmitter.event().name(name).data(json).build());
+    }
+
+    // the frame is built once and shared, it is only read while being sent
+    private void broadcast(Set<DataWithMediaType> frame) {
+        for (var subscriber : subscribers)
+            enqueue(subscriber, frame);
+    }
+
+    private void enqueue(Subscriber subscriber, Set<DataWithMediaType> frame) {
+        if (!subscriber.queue().offer(frame)) {
+            evict(subscriber);
+            return;
+        }
+        if (subscriber.draining().compareAndSet(false, true))
+            sendExecutor.execute(() -> drain(subscriber));
+    }
+
+    private void drain(Subscriber subscriber) {
+        do {
+            Set<DataWithMediaType> frame;
+            while ((frame = subscriber.queue().poll()) != null) {
+                try {
+                    subscriber.emitter().send(frame);
+                } catch (IOException | IllegalStateException e) {
+                    // the client went away or the emitter is already complete, draining stays claimed for good
+                    subscribers.remove(subscriber);
+                    subscriber.queue().clear();
+                    return;
+                }
+            }
+            subscriber.draining().set(false);
+        } while (!subscriber.queue().isEmpty() && subscriber.draining().compareAndSet(false, true));
+    }
+
+    private void evict(Subscriber subscriber) {
+        if (!subscribers.remove(subscriber))
+            return;
+        subscriber.queue().clear();
+        // completing waits for a send in progress, which is what made this subscriber slow
+        sendExecutor.execute(subscriber.emitter()::complete);
+    }
+
+    private record Subscriber(
+            SseEmitter emitter,
+            BlockingQueue<Set<DataWithMediaType>> queue,
+            AtomicBoolean draining) {
+
+        Subscriber(SseEmitter emitter, BlockingQueue<Set<DataWithMediaType>> queue) {
+            this(emitter, queue, new AtomicBoolean());
+        }
+    }
+}
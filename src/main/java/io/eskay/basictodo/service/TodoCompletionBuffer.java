@@ -0,0 +1,237 @@
+package io.eskay.basictodo.service;
+
+import io.eskay.basictodo.dto.response.TodoDto;
+import io.eskay.basictodo.repository.TodoArchiveRepository;
+import io.eskay.basictodo.repository.TodoRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionOperations;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Write-behind buffer for completed status changes. When enabled, toggling a todo only records its latest
+ * completed status here, and every flush interval the pending changes are written with one update per distinct
+ * (completed, writes) pair, so a burst of toggles costs a handful of statements however many todos it touched.
+ * <p>
+ * Reads on this node see a buffered change straight away. A change is durable once flushed: on the interval,
+ * before any other write to the same todo, before reads filtering on the completed status, and on shutdown.
+ * A crash loses the changes of at most the last flush interval, and other nodes only see flushed changes,
+ * through the outbox records written along with them.
+ */
+@Component
+public class TodoCompletionBuffer {
+
+    private final TodoRepository repository;
+    private final TodoArchiveRepository archiveRepository;
+    private final TodoOutbox outbox;
+    private final TransactionOperations transactionOperations;
+    private final TaskScheduler taskScheduler;
+    private final boolean enabled;
+    private final int maxPending;
+    private final int batchSize;
+
+    private final ConcurrentHashMap<Long, PendingCompletion> pending = new ConcurrentHashMap<>();
+    // written by a transaction that has not completed yet, so not to be written again meanwhile
+    private final Set<Long> inFlight = ConcurrentHashMap.newKeySet();
+    // requests, the scheduler and shutdown all flush, one at a time so no two pick the same pending change
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+
+    public TodoCompletionBuffer(TodoRepository repository,
+                                TodoArchiveRepository archiveRepository,
+                                TodoOutbox outbox,
+                                TransactionOperations transactionOperations,
+                                TaskScheduler taskScheduler,
+                                @Value("${todo.write-behind.enabled}") boolean enabled,
+                                @Value("${todo.write-behind.max-pending}") int maxPending,
+                                @Value("${todo.write-behind.batch-size}") int batchSize) {
+        this.repository = repository;
+        this.archiveRepository = archiveRepository;
+        this.outbox = outbox;
+        this.transactionOperations = transactionOperations;
+        this.taskScheduler = taskScheduler;
+        this.enabled = enabled;
+        this.maxPending = maxPending;
+        this.batchSize = batchSize;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Optional<PendingCompletion> pending(Long id) {
+        return Optional.ofNullable(pending.get(id));
+    }
+
+    /**
+     * Records the completed status of {@code todo}, as readers currently see it, as changed.
+     *
+     * @return the todo with the change applied and its version moved on
+     */
+    public TodoDto buffer(TodoDto todo, boolean completed) {
+        // bounds the memory held. The writer that finds the buffer full hands a flush to the scheduler rather than
+        // writing other todos in its own transaction, toggles buffered meanwhile can take it past max-pending
+        if (pending.size() >= maxPending && !pending.containsKey(todo.id()) && flushScheduled.compareAndSet(false, true))
+            taskScheduler.schedule(this::flushWhenFull, Instant.now());
+
+        return pending.merge(
+                        todo.id(),
+                        new PendingCompletion(withCompleted(todo, completed), 1),
+                        (current, ignored) -> new PendingCompletion(
+                                withCompleted(current.todo(), completed), current.writes() + 1))
+                .todo();
+    }
+
+    @Scheduled(fixedDelayString = "${todo.write-behind.flush-interval}")
+    public void flush() {
+        flush(pending.keySet());
+    }
+
+    /**
+     * Writes the pending changes of {@code ids}, in batches of at most {@code batch-size} ids. A batch joins the
+     * caller's transaction, if there is one, and its changes are forgotten here just before that commits, so a read
+     * never adds them to a stored version that already has them. They are buffered again if it rolls back.
+     */
+    public void flush(Collection<Long> ids) {
+        if (pending.isEmpty())
+            return;
+
+        flushLock.lock();
+        try {
+            var flushing = new HashMap<Long, PendingCompletion>();
+            var idsByChange = new HashMap<PendingCompletion.Change, List<Long>>();
+            for (var id : ids) {
+                var completion = pending.get(id);
+                if (completion == null || inFlight.contains(id))
+                    continue;
+                flushing.put(id, completion);
+                idsByChange.computeIfAbsent(completion.change(), change -> new ArrayList<>()).add(id);
+            }
+
+            for (var entry : idsByChange.entrySet()) {
+                var change = entry.getKey();
+                var changeIds = entry.getValue();
+                for (var from = 0; from < changeIds.size(); from += batchSize) {
+                    var batch = changeIds.subList(from, Math.min(from + batchSize, changeIds.size()));
+                    transactionOperations.executeWithoutResult(status -> {
+                        var updated = repository.updateCompletedAndVersionByIdIn(
+                                batch, change.completed(), change.writes());
+                        if (updated < batch.size())
+                            writeToRestored(batch, change);
+                        outbox.recordChanged(batch);
+                        inFlight.addAll(batch);
+                        forgetOnCommit(batch, flushing);
+                    });
+                }
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    // a todo archived after its change was buffered is restored and written, one deleted in between is gone
+    private void writeToRestored(List<Long> batch, PendingCompletion.Change change) {
+        var existingIds = new HashSet<>(repository.findIdsByIdIn(batch));
+        var missingIds = batch.stream()
+                .filter(id -> !existingIds.contains(id))
+                .toList();
+        var restoredIds = archiveRepository.restore(missingIds);
+        if (!restoredIds.isEmpty())
+            repository.updateCompletedAndVersionByIdIn(restoredIds, change.completed(), change.writes());
+    }
+
+    private void flushWhenFull() {
+        try {
+            flush();
+        } finally {
+            flushScheduled.set(false);
+        }
+    }
+
+    private void forgetOnCommit(List<Long> batch, Map<Long, PendingCompletion> flushing) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            batch.forEach(id -> forget(id, flushing.get(id)));
+            inFlight.removeAll(batch);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            private boolean forgotten;
+
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                batch.forEach(id -> forget(id, flushing.get(id)));
+                forgotten = true;
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (forgotten && status != STATUS_COMMITTED)
+                    batch.forEach(id -> restore(id, flushing.get(id)));
+                inFlight.removeAll(batch);
+            }
+        });
+    }
+
+    // toggles buffered while the flush ran stay pending, minus the writes it made
+    private void forget(Long id, PendingCompletion flushed) {
+        pending.computeIfPresent(id, (key, current) -> current == flushed
+                ? null
+                : new PendingCompletion(current.todo(), current.writes() - flushed.writes()));
+    }
+
+    // toggles buffered since the changes were forgotten hold the latest status, the writes that failed add up
+    private void restore(Long id, PendingCompletion flushed) {
+        pending.merge(id, flushed, (current, ignored) ->
+                new PendingCompletion(current.todo(), current.writes() + flushed.writes()));
+    }
+
+    private static TodoDto withCompleted(TodoDto todo, boolean completed) {
+        return new TodoDto(todo.id(), todo.name(), todo.created_at(), completed, todo.version() + 1);
+    }
+
+    /**
+     * Latest buffered state of a todo and the number of writes not yet made to the database,
+     * each of which moves the stored version on by one when flushed.
+     */
+    public record PendingCompletion(
+            TodoDto todo,
+            long writes) {
+
+        /**
+         * @return {@code stored}, as read from the database, with the buffered change applied
+         */
+        public TodoDto applyTo(TodoDto stored) {
+            return new TodoDto(stored.id(), stored.name(), stored.created_at(), todo.completed(),
+                    stored.version() + writes);
+        }
+
+        Change change() {
+            return new Change(todo.completed(), writes);
+        }
+
+        record Change(boolean completed, long writes) {
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package io.eskay.basictodo.service;
+
+import io.eskay.basictodo.event.RemoteTodosChangedEvent;
+import io.eskay.basictodo.event.TodoChangedEvent;
+import io.eskay.basictodo.event.TodosArchivedEvent;
+import io.eskay.basictodo.event.TodosBulkUpdatedEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counter that moves forward after every committed todo write, on this node or another, so todo listings can be tagged with
+ * the generation they were read at and a client holding the current tag knows nothing changed since.
+ * Each node counts on its own, so tags carry the {@link #bootId()} as well: behind a load balancer, or after a restart,
+ * the same generation number read from another counter does not match.
+ */
+@Component
+public class TodoGeneration {
+
+    private final String bootId = Long.toString(ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE, 36);
+    private final AtomicLong generation = new AtomicLong();
+    private final long settleNanos;
+    private volatile long changedAtNanos;
+
+    public TodoGeneration(@Value("${todo.replica.url:}") String replicaUrl,
+                          @Value("${todo.replica.max-lag}") Duration replicaMaxLag) {
+        this.settleNanos = replicaUrl.isBlank() ? 0 : replicaMaxLag.toNanos();
+        this.changedAtNanos = System.nanoTime() - settleNanos;
+    }
+
+    /**
+     * Random id of this node's counter, different for every node and every start.
+     */
+    public String bootId() {
+        return bootId;
+    }
+
+    /**
+     * Read this before querying, a write committed in between then only makes the tag stale, never the body.
+     */
+    public long current() {
+        return generation.get();
+    }
+
+    /**
+     * True while listings read from the replica may not show the latest change yet, so they must not be tagged
+     * with the current generation. Always false without a replica.
+     */
+    public boolean isSettling() {
+        return System.nanoTime() - changedAtNanos < settleNanos;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTodoChanged(TodoChangedEvent event) {
+        advance();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTodosBulkUpdated(TodosBulkUpdatedEvent event) {
+        advance();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTodosArchived(TodosArchivedEvent event) {
+        advance();
+    }
+
+    @EventListener
+    public void onRemoteTodosChanged(RemoteTodosChangedEvent event) {
+        advance();
+    }
+
+    private void advance() {
+        changedAtNanos = System.nanoTime();
+        generation.incrementAndGet();
+    }
+}
@@ -0,0 +1,69 @@
+package io.eskay.basictodo.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.http.MediaType;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Encodings todo listings are served in, chosen with the Accept header. CBOR and Smile are binary JSON: the same
+ * fields and values, without the text, so no schema has to be shared with clients.
+ */
+public enum TodoListFormat {
+
+    JSON(MediaType.APPLICATION_JSON),
+    CBOR(MediaType.APPLICATION_CBOR),
+    SMILE(new MediaType("application", "x-jackson-smile"));
+
+    private final MediaType mediaType;
+
+    TodoListFormat(MediaType mediaType) {
+        this.mediaType = mediaType;
+    }
+
+    public MediaType mediaType() {
+        return mediaType;
+    }
+
+    /**
+     * A mapper writing this format, configured like {@code jsonMapper}.
+     */
+    public ObjectMapper mapperFrom(ObjectMapper jsonMapper) {
+        return switch (this) {
+            case JSON -> jsonMapper;
+            case CBOR -> jsonMapper.copyWith(new CBORFactory());
+            case SMILE -> jsonMapper.copyWith(new SmileFactory());
+        };
+    }
+
+    public static List<MediaType> mediaTypes() {
+        return Arrays.stream(values()).map(TodoListFormat::mediaType).toList();
+    }
+
+    /**
+     * The format {@code accept} prefers, JSON when it is missing or accepts anything, or empty when it accepts none
+     * of the formats.
+     */
+    public static Optional<TodoListFormat> negotiate(String accept) {
+        if (accept == null || accept.isBlank())
+            return Optional.of(JSON);
+
+        var accepted = MediaType.parseMediaTypes(accept)
+                .stream()
+                .filter(mediaType -> mediaType.getQualityValue() > 0)
+                .sorted(Comparator.comparingDouble(MediaType::getQualityValue).reversed())
+                .toList();
+        for (var mediaType : accepted) {
+            for (var format : values()) {
+                if (mediaType.isCompatibleWith(format.mediaType))
+                    return Optional.of(format);
+            }
+        }
+        return Optional.empty();
+    }
+}
@@ -0,0 +1,142 @@
+package io.eskay.basictodo.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.eskay.basictodo.dto.response.TodoDto;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Todo listings as the bytes sent to clients, per completed filter and {@link TodoListFormat}, for the
+ * {@link TodoGeneration} they were read at. Between writes a listing is read, mapped and serialized once per
+ * format, and every other request for it only copies bytes. Each filter and format keeps only its latest listing:
+ * one of an older generation is a miss and replaced, so superseded listings do not sit in memory until evicted.
+ * <p>
+ * A cached listing is gzipped once, the first time a client accepting gzip asks for it, and kept next to the plain
+ * bytes. Listings that are not cached are left to {@code server.compression}, which compresses per response.
+ * <p>
+ * Bounded by the bytes held, published as the {@code todoListResponses} cache metrics.
+ */
+@Component
+public class TodoListResponseCache implements MeterBinder {
+
+    static final String CACHE_NAME = "todoListResponses";
+
+    private final Map<TodoListFormat, ObjectMapper> mappers = new EnumMap<>(TodoListFormat.class);
+    private final boolean gzip;
+    private final long gzipMinSize;
+    private final Cache<Filter, TodoListResponse> cache;
+
+    public TodoListResponseCache(ObjectMapper objectMapper,
+                                 @Value("${todo.list-cache.max-size}") DataSize maxSize,
+                                 @Value("${todo.list-cache.gzip}") boolean gzip,
+                                 @Value("${todo.list-cache.gzip-min-size}") DataSize gzipMinSize) {
+        for (var format : TodoListFormat.values())
+            mappers.put(format, format.mapperFrom(objectMapper));
+        this.gzip = gzip;
+        this.gzipMinSize = gzipMinSize.toBytes();
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxSize.toBytes())
+                .weigher((Filter filter, TodoListResponse response) -> response.size())
+                .recordStats()
+                // a few entries at most, evicting on the caller keeps the bound strict at next to no cost
+                .executor(Runnable::run)
+                .build();
+    }
+
+    /**
+     * The listing for {@code completed}, null for all todos, at {@code generation} in {@code format}, loaded and
+     * serialized first when there is none. Concurrent misses each load it, and the newest generation loaded is kept.
+     * With {@code acceptsGzip} a large enough listing comes gzipped as well.
+     */
+    public TodoListResponse get(Boolean completed, TodoListFormat format, long generation, boolean acceptsGzip,
+                                Supplier<List<TodoDto>> loader) {
+        var filter = new Filter(completed, format);
+        var response = cache.getIfPresent(filter);
+        if (response == null || response.generation() != generation) {
+            response = render(format, generation, loader.get());
+            // a slower request for an older generation must not replace a newer listing
+            cache.asMap().merge(filter, response,
+                    (current, loaded) -> current.generation() > loaded.generation() ? current : loaded);
+        }
+        if (!acceptsGzip || !gzip || response.gzipped() != null || response.body().length < gzipMinSize)
+            return response;
+
+        // concurrent first requests may each compress it, replacing only the entry compressed re-weighs it
+        var gzipped = response.withGzipped(gzip(response.body()));
+        cache.asMap().replace(filter, response, gzipped);
+        return gzipped;
+    }
+
+    /**
+     * The listing serialized without caching it, for reads that may not reflect {@code generation} yet. Never
+     * gzipped, compressing what is sent once is left to {@code server.compression}.
+     */
+    public TodoListResponse render(TodoListFormat format, long generation, List<TodoDto> todos) {
+        byte[] body;
+        try {
+            body = mappers.get(format).writeValueAsBytes(todos);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("could not serialize todo listing as " + format, e);
+        }
+        return new TodoListResponse(format, generation, body, null);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        // the tag keys of the cache manager's caches, Prometheus drops meters of the same name with other keys.
+        // cache.manager holds the bean name of the manager there, Spring Boot's is cacheManager
+        CaffeineCacheMetrics.monitor(registry, cache, CACHE_NAME, "cache.manager", "cacheManager", "name", CACHE_NAME);
+        Gauge.builder("cache.weight", cache, c -> c.policy().eviction()
+                        .map(eviction -> eviction.weightedSize().orElse(0))
+                        .orElse(0L))
+                .tag("cache", CACHE_NAME)
+                .description("Bytes of the cached listings")
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    private static byte[] gzip(byte[] body) {
+        var compressed = new ByteArrayOutputStream(body.length / 4);
+        try (var out = new GZIPOutputStream(compressed)) {
+            out.write(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return compressed.toByteArray();
+    }
+
+    private record Filter(Boolean completed, TodoListFormat format) {
+    }
+
+    /**
+     * {@code gzipped} is null until a client accepting gzip asked for the cached listing, and stays null when the
+     * listing is too small to be worth compressing or compression is off.
+     */
+    public record TodoListResponse(TodoListFormat format, long generation, byte[] body, byte[] gzipped) {
+
+        TodoListResponse withGzipped(byte[] gzipped) {
+            return new TodoListResponse(format, generation, body, gzipped);
+        }
+
+        int size() {
+            return body.length + (gzipped == null ? 0 : gzipped.length);
+        }
+    }
+}
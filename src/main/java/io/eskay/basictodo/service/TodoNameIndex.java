@@ -0,0 +1,243 @@
+package io.eskay.basictodo.service;
+
+import io.eskay.basictodo.config.ReplicaRouting;
+import io.eskay.basictodo.entity.Todo;
+import io.eskay.basictodo.event.RemoteTodosChangedEvent;
+import io.eskay.basictodo.event.TodoChangedEvent;
+import io.eskay.basictodo.event.TodosArchivedEvent;
+import io.eskay.basictodo.repository.TodoRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory trigram index over todo names, answering case-insensitive substring searches without a table scan.
+ * Every three consecutive characters of a name map to the ascending ids of the todos containing them. A search
+ * intersects the lists of its query's trigrams, starting from the shortest, and checks the few candidates left
+ * against their names, stopping once it has enough matches.
+ * <p>
+ * The index is loaded by streaming all todos once the application is ready, and follows todo writes on this node
+ * and on others from then on. Until the load finished {@link #isReady()} is false and searches go to the database.
+ */
+@Component
+public class TodoNameIndex {
+
+    public static final int MIN_QUERY_LENGTH = 3;
+
+    private final TodoRepository repository;
+    private final TransactionOperations transactionOperations;
+
+    // guarded by lock
+    private final Map<Long, LongPostingList> postings = new HashMap<>();
+    private final Map<Long, String> names = new HashMap<>();
+    // written while loading, the streamed rows of these todos are older than what the index has
+    private Set<Long> changedWhileLoading;
+    private volatile boolean ready;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public TodoNameIndex(TodoRepository repository, TransactionOperations transactionOperations) {
+        this.repository = repository;
+        this.transactionOperations = transactionOperations;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return names.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        lock.writeLock().lock();
+        try {
+            ready = false;
+            postings.clear();
+            names.clear();
+            changedWhileLoading = new HashSet<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        transactionOperations.executeWithoutResult(status -> {
+            try (var todos = repository.streamAllTodos()) {
+                todos.forEach(todo -> loadTodo(todo.id(), todo.name()));
+            }
+        });
+
+        lock.writeLock().lock();
+        try {
+            changedWhileLoading = null;
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Ids of up to {@code limit} todos whose name contains {@code query}, ignoring case, in ascending order.
+     */
+    public List<Long> search(String query, int limit) {
+        if (query.length() < MIN_QUERY_LENGTH)
+            throw new IllegalArgumentException("query must be at least %d chars".formatted(MIN_QUERY_LENGTH));
+        var needle = query.toLowerCase(Locale.ROOT);
+
+        lock.readLock().lock();
+        try {
+            var lists = new ArrayList<LongPostingList>();
+            for (var trigram : trigrams(needle)) {
+                var list = postings.get(trigram);
+                if (list == null)
+                    return List.of();
+                lists.add(list);
+            }
+            lists.sort(Comparator.comparingInt(LongPostingList::size));
+
+            var shortest = lists.getFirst();
+            var positions = new int[lists.size()];
+            var ids = new ArrayList<Long>(Math.min(limit, shortest.size()));
+            candidates:
+            for (var i = 0; i < shortest.size() && ids.size() < limit; i++) {
+                var id = shortest.get(i);
+                for (var l = 1; l < lists.size(); l++) {
+                    var list = lists.get(l);
+                    positions[l] = list.seek(id, positions[l]);
+                    if (positions[l] == list.size())
+                        break candidates;
+                    if (list.get(positions[l]) != id)
+                        continue candidates;
+                }
+                // the name has every trigram of the query, but not necessarily next to each other
+                if (names.get(id).contains(needle))
+                    ids.add(id);
+            }
+            return ids;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void put(long id, String name) {
+        if (name == null) {
+            remove(id);
+            return;
+        }
+        var lowerCaseName = name.toLowerCase(Locale.ROOT);
+
+        lock.writeLock().lock();
+        try {
+            if (changedWhileLoading != null)
+                changedWhileLoading.add(id);
+            var previousName = names.put(id, lowerCaseName);
+            if (lowerCaseName.equals(previousName))
+                return;
+            if (previousName != null)
+                removePostings(id, previousName);
+            addPostings(id, lowerCaseName);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            if (changedWhileLoading != null)
+                changedWhileLoading.add(id);
+            var previousName = names.remove(id);
+            if (previousName != null)
+                removePostings(id, previousName);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTodoChanged(TodoChangedEvent event) {
+        if (event.current() == null)
+            remove(event.previous().id());
+        else
+            put(event.current().id(), event.current().name());
+    }
+
+    // searches only cover the todos still in basic_todo
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTodosArchived(TodosArchivedEvent event) {
+        event.ids().forEach(this::remove);
+    }
+
+    // only the ids of todos written on other nodes are known, so their names are read back
+    @EventListener
+    public void onRemoteTodosChanged(RemoteTodosChangedEvent event) {
+        // writes to all todos at once only ever change the completed status
+        if (event.ids() == null)
+            return;
+
+        var deletedIds = new HashSet<>(event.ids());
+        // the poller saw the writes on the primary, a replica may not have them yet
+        var todos = ReplicaRouting.onPrimary(() -> repository.findAllByIdInOrderByIdAsc(event.ids()));
+        for (Todo todo : todos) {
+            put(todo.getId(), todo.getName());
+            deletedIds.remove(todo.getId());
+        }
+        deletedIds.forEach(this::remove);
+    }
+
+    private void loadTodo(long id, String name) {
+        if (name == null)
+            return;
+        var lowerCaseName = name.toLowerCase(Locale.ROOT);
+
+        lock.writeLock().lock();
+        try {
+            if (changedWhileLoading.contains(id))
+                return;
+            names.put(id, lowerCaseName);
+            addPostings(id, lowerCaseName);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void addPostings(long id, String name) {
+        for (var trigram : trigrams(name))
+            postings.computeIfAbsent(trigram, key -> new LongPostingList()).add(id);
+    }
+
+    private void removePostings(long id, String name) {
+        for (var trigram : trigrams(name)) {
+            var list = postings.get(trigram);
+            if (list != null && list.remove(id) && list.size() == 0)
+                postings.remove(trigram);
+        }
+    }
+
+    // three chars packed into one long, repeated trigrams of a name only count once
+    private static Set<Long> trigrams(String text) {
+        var trigrams = new LinkedHashSet<Long>();
+        for (var i = 0; i + MIN_QUERY_LENGTH <= text.length(); i++)
+            trigrams.add(((long) text.charAt(i) << 32) | ((long) text.charAt(i + 1) << 16) | text.charAt(i + 2));
+        return trigrams;
+    }
+}
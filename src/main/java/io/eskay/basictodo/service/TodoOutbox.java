@@ -0,0 +1,44 @@
+package io.eskay.basictodo.service;
+
+import io.eskay.basictodo.repository.TodoOutboxRepository;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.UUID;
+
+/**
+ * Records todo writes in the outbox table, in the transaction making the write, so a write and its record
+ * commit or roll back together. {@link TodoOutboxPoller} on every other node picks the records up.
+ */
+@Component
+public class TodoOutbox {
+
+    private final TodoOutboxRepository repository;
+    // tells this node's records apart from the ones it has to react to
+    private final String nodeId = UUID.randomUUID().toString();
+
+    public TodoOutbox(TodoOutboxRepository repository) {
+        this.repository = repository;
+    }
+
+    public String nodeId() {
+        return nodeId;
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordChanged(Long todoId) {
+        repository.insertForTodo(todoId, nodeId);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordChanged(Collection<Long> todoIds) {
+        repository.insertForTodos(todoIds, nodeId);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordAllChanged() {
+        repository.insertForTodo(null, nodeId);
+    }
+}
@@ -0,0 +1,107 @@
+package io.eskay.basictodo.service;
+
+import io.eskay.basictodo.config.CacheConfig;
+import io.eskay.basictodo.config.ReplicaRouting;
+import io.eskay.basictodo.event.RemoteTodosChangedEvent;
+import io.eskay.basictodo.repository.TodoOutboxRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Tails the outbox table for todo writes made by other nodes, evicts them from the local caches and publishes a
+ * {@link RemoteTodosChangedEvent} for everything else derived from them, such as list generations. Caches on
+ * every node so converge within a poll interval of a commit, without a shared cache.
+ * <p>
+ * Rows are stamped when their transaction starts, so a row can commit after newer ones were already read.
+ * Every poll reads back {@code max-transaction-time} from the newest row seen and skips rows it handled before.
+ */
+@Component
+public class TodoOutboxPoller {
+
+    private final TodoOutboxRepository repository;
+    private final TodoOutbox outbox;
+    private final CacheManager cacheManager;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Duration maxTransactionTime;
+    private final Duration retention;
+
+    // guarded by pollLock
+    private Instant newestSeen;
+    private final Map<Long, Instant> seenRows = new HashMap<>();
+    private final ReentrantLock pollLock = new ReentrantLock();
+
+    public TodoOutboxPoller(TodoOutboxRepository repository,
+                            TodoOutbox outbox,
+                            CacheManager cacheManager,
+                            ApplicationEventPublisher eventPublisher,
+                            @Value("${todo.outbox.max-transaction-time}") Duration maxTransactionTime,
+                            @Value("${todo.outbox.retention}") Duration retention) {
+        this.repository = repository;
+        this.outbox = outbox;
+        this.cacheManager = cacheManager;
+        this.eventPublisher = eventPublisher;
+        this.maxTransactionTime = maxTransactionTime;
+        this.retention = retention;
+    }
+
+    @Scheduled(fixedDelayString = "${todo.outbox.poll-interval}")
+    public void poll() {
+        pollLock.lock();
+        try {
+            // rows a lagging replica has not shown yet could fall out of the window read back
+            ReplicaRouting.runOnPrimary(this::pollChanges);
+        } finally {
+            pollLock.unlock();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${todo.outbox.cleanup-interval}")
+    public void cleanup() {
+        repository.deleteCreatedBefore(Instant.now().minus(retention));
+    }
+
+    private void pollChanges() {
+        // nothing is cached before the first poll, so older rows do not matter
+        if (newestSeen == null)
+            newestSeen = repository.findNewestCreatedAt();
+
+        var since = newestSeen.minus(maxTransactionTime);
+        seenRows.values().removeIf(createdAt -> createdAt.isBefore(since));
+
+        var changedIds = new HashSet<Long>();
+        var allChanged = false;
+        for (var entry : repository.findCreatedSince(since)) {
+            if (seenRows.putIfAbsent(entry.getId(), entry.getCreatedAt()) != null)
+                continue;
+            if (entry.getCreatedAt().isAfter(newestSeen))
+                newestSeen = entry.getCreatedAt();
+            // this node already reacted to its own writes when they committed
+            if (entry.getNodeId().equals(outbox.nodeId()))
+                continue;
+
+            if (entry.getTodoId() == null)
+                allChanged = true;
+            else
+                changedIds.add(entry.getTodoId());
+        }
+        if (!allChanged && changedIds.isEmpty())
+            return;
+
+        var cache = cacheManager.getCache(CacheConfig.TODOS_CACHE);
+        if (allChanged)
+            cache.clear();
+        else
+            changedIds.forEach(cache::evict);
+        eventPublisher.publishEvent(new RemoteTodosChangedEvent(allChanged ? null : changedIds));
+    }
+}
@@ -1,19 +1,30 @@
 package io.eskay.basictodo.service;
 
+import io.eskay.basictodo.dto.request.BulkCompleteTodosRequest;
 import io.eskay.basictodo.dto.request.CreateTodoRequest;
 import io.eskay.basictodo.dto.request.PatchTodoRequest;
 import io.eskay.basictodo.dto.request.UpdateTodoRequest;
+import io.eskay.basictodo.dto.response.BulkCompleteTodosResponse;
 import io.eskay.basictodo.dto.response.TodoDto;
+import io.eskay.basictodo.dto.response.TodoPageDto;
 
 
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface TodoService {
     List<TodoDto> getAllTodos();
     List<TodoDto> getAllTodosByCompletedStatus(boolean isComplete);
+    TodoPageDto getTodosPage(String cursor, int limit);
+    TodoPageDto getTodosPageByCompletedStatus(boolean isComplete, String cursor, int limit);
     TodoDto getTodo(Long id);
+    TodoDto getTodoIncludingArchived(Long id);
+    List<TodoDto> getArchivedTodos();
+    List<TodoDto> searchTodos(String query, int limit);
+    void exportTodos(Consumer<TodoDto> consumer);
     TodoDto createTodo(CreateTodoRequest request);
     TodoDto toggleCompletedStatus(Long id, boolean isComplete);
+    BulkCompleteTodosResponse toggleCompletedStatus(BulkCompleteTodosRequest request);
     void deleteTodo(Long id);
     TodoDto updateTodo(Long id, String name);
     TodoDto updateTodo(UpdateTodoRequest request);
@@ -1,126 +1,335 @@
 package io.eskay.basictodo.service;
 
+import io.eskay.basictodo.config.CacheConfig;
+import io.eskay.basictodo.config.ReplicaRouting;
+import io.eskay.basictodo.dto.request.BulkCompleteTodosRequest;
 import io.eskay.basictodo.dto.request.CreateTodoRequest;
 import io.eskay.basictodo.dto.request.PatchTodoRequest;
 import io.eskay.basictodo.dto.request.UpdateTodoRequest;
+import io.eskay.basictodo.dto.response.BulkCompleteTodosResponse;
 import io.eskay.basictodo.dto.response.TodoDto;
+import io.eskay.basictodo.dto.response.TodoPageDto;
+import io.eskay.basictodo.entity.Todo;
+import io.eskay.basictodo.event.TodoChangedEvent;
+import io.eskay.basictodo.event.TodosBulkUpdatedEvent;
 import io.eskay.basictodo.exception.ResourceNotFoundException;
 import io.eskay.basictodo.mapper.TodoDtoMapper;
 import io.eskay.basictodo.mapper.TodoRequestMapper;
+import io.eskay.basictodo.pagination.TodoCursor;
+import io.eskay.basictodo.repository.TodoArchiveRepository;
 import io.eskay.basictodo.repository.TodoRepository;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.CachePut;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
 
 @Service
 public class TodoServiceImpl implements TodoService {
 
     private final TodoRepository repository;
+    private final TodoArchiveRepository archiveRepository;
     private final TodoDtoMapper dtoMapper;
     private final TodoRequestMapper requestMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TodoCompletionBuffer completionBuffer;
+    private final TodoOutbox outbox;
+    private final TodoNameIndex nameIndex;
 
     public TodoServiceImpl(TodoRepository repository,
+                           TodoArchiveRepository archiveRepository,
                            TodoDtoMapper dtoMapper,
-                           TodoRequestMapper requestMapper
+                           TodoRequestMapper requestMapper,
+                           ApplicationEventPublisher eventPublisher,
+                           TodoCompletionBuffer completionBuffer,
+                           TodoOutbox outbox,
+                           TodoNameIndex nameIndex
     ) {
         this.repository = repository;
+        this.archiveRepository = archiveRepository;
         this.dtoMapper = dtoMapper;
         this.requestMapper = requestMapper;
+        this.eventPublisher = eventPublisher;
+        this.completionBuffer = completionBuffer;
+        this.outbox = outbox;
+        this.nameIndex = nameIndex;
     }
 
     @Override
     public List<TodoDto> getAllTodos() {
-        return repository.findAll()
+        return repository.findAllTodoDtos()
                 .stream()
-                .map(dtoMapper)
+                .map(this::withPendingCompletion)
                 .toList();
     }
 
     @Override
     public List<TodoDto> getAllTodosByCompletedStatus(boolean isComplete) {
-        return repository.findAllByCompleted(isComplete)
-                .stream()
-                .map(dtoMapper)
-                .toList();
+        // the database filters on the completed status, so it has to know about buffered changes
+        completionBuffer.flush();
+        return repository.findAllTodoDtosByCompleted(isComplete);
     }
 
     @Override
+    public TodoPageDto getTodosPage(String cursor, int limit) {
+        // fetch one extra row to find out whether there is a next page
+        var fetchLimit = Limit.of(limit + 1);
+        List<Todo> todos;
+        if (cursor == null) {
+            todos = repository.findAllByOrderByCreatedAtAscIdAsc(fetchLimit);
+        } else {
+            var position = TodoCursor.decode(cursor);
+            todos = repository.findAllAfter(position.createdAt(), position.id(), fetchLimit);
+        }
+        return toPage(todos, limit);
+    }
+
+    @Override
+    public TodoPageDto getTodosPageByCompletedStatus(boolean isComplete, String cursor, int limit) {
+        completionBuffer.flush();
+        var fetchLimit = Limit.of(limit + 1);
+        List<Todo> todos;
+        if (cursor == null) {
+            todos = repository.findAllByCompletedOrderByCreatedAtAscIdAsc(isComplete, fetchLimit);
+        } else {
+            var position = TodoCursor.decode(cursor);
+            todos = repository.findAllByCompletedAfter(isComplete, position.createdAt(), position.id(), fetchLimit);
+        }
+        return toPage(todos, limit);
+    }
+
+    @Override
+    @Cacheable(cacheNames = CacheConfig.TODOS_CACHE, key = "#id")
     public TodoDto getTodo(Long id) {
-        return repository
-                .findById(id)
-                .map(dtoMapper)
+        // a miss right after a write evicted the todo would cache the replica's stale row, the cache is what
+        // keeps these reads off the primary
+        return withPendingCompletion(ReplicaRouting.onPrimary(() -> findTodo(id)));
+    }
+
+    // not cached, archived todos are rarely read and must not take up room meant for the ones in use
+    @Override
+    public TodoDto getTodoIncludingArchived(Long id) {
+        // basic_todo first: a todo archived in between is then found in the archive, the other way round in neither
+        return ReplicaRouting.onPrimary(() -> repository
+                        .findTodoDtoById(id)
+                        .map(this::withPendingCompletion)
+                        .or(() -> archiveRepository.findTodoDtoById(id)))
                 .orElseThrow(() -> new ResourceNotFoundException(
                         "Todo with id '%d' not found, check and try again".formatted(id)));
     }
 
     @Override
+    public List<TodoDto> getArchivedTodos() {
+        return archiveRepository.findAllTodoDtos();
+    }
+
+    @Override
+    public List<TodoDto> searchTodos(String query, int limit) {
+        List<Todo> todos;
+        if (nameIndex.isReady())
+            todos = repository.findAllByIdInOrderByIdAsc(nameIndex.search(query, limit));
+        else
+            todos = repository.findAllByNameContainingIgnoreCaseOrderByIdAsc(query, Limit.of(limit));
+        return todos.stream()
+                .map(dtoMapper)
+                .map(this::withPendingCompletion)
+                .toList();
+    }
+
+    /**
+     * Exports the todos in use followed by the archived ones. Both are read from one snapshot, so a todo archived
+     * or restored while the export runs is exported exactly once.
+     */
+    @Override
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    public void exportTodos(Consumer<TodoDto> consumer) {
+        try (var todos = repository.streamAllTodos()) {
+            todos.map(this::withPendingCompletion).forEach(consumer);
+        }
+        // archived todos are never buffered
+        try (var archivedTodos = archiveRepository.streamAllTodos()) {
+            archivedTodos.forEach(consumer);
+        }
+    }
+
+    @Override
+    @Transactional
+    @CachePut(cacheNames = CacheConfig.TODOS_CACHE, key = "#result.id()")
     public TodoDto createTodo(CreateTodoRequest request) {
         var todo = requestMapper.apply(request);
-        var createdTodo = repository.save(todo);
-        return dtoMapper.apply(createdTodo);
+        var createdTodo = dtoMapper.apply(repository.save(todo));
+        outbox.recordChanged(createdTodo.id());
+        eventPublisher.publishEvent(new TodoChangedEvent(TodoChangedEvent.Type.CREATED, null, createdTodo));
+        return createdTodo;
     }
 
     @Override
+    @Transactional
+    @CacheEvict(cacheNames = CacheConfig.TODOS_CACHE, key = "#id")
     public TodoDto toggleCompletedStatus(Long id, boolean isComplete) {
-        var foundTodo = repository
-                .findById(id)
-                .orElseThrow(() -> new ResourceNotFoundException(
-                        "Todo with id '%d' not found, check and try again".formatted(id)));
-        foundTodo.setCompleted(isComplete);
-        return dtoMapper.apply(repository.save(foundTodo));
+        if (completionBuffer.isEnabled())
+            return bufferCompleted(id, isComplete);
+        return applyUpdate(id, null, isComplete, TodoChangedEvent.Type.PATCHED);
     }
 
     @Override
+    @Transactional
+    @CacheEvict(cacheNames = CacheConfig.TODOS_CACHE, allEntries = true)
+    public BulkCompleteTodosResponse toggleCompletedStatus(BulkCompleteTodosRequest request) {
+        if (request.all()) {
+            completionBuffer.flush();
+            var updated = repository.updateCompletedForAll(request.completed());
+            outbox.recordAllChanged();
+            eventPublisher.publishEvent(new TodosBulkUpdatedEvent(null, request.completed(), updated));
+            return new BulkCompleteTodosResponse(updated, List.of());
+        }
+
+        // validated in the controller already, a caller without ids must never reach the whole table
+        if (request.ids() == null || request.ids().isEmpty())
+            throw new IllegalArgumentException("ids cannot be empty, set all to true to update every todo");
+        var ids = new LinkedHashSet<>(request.ids());
+
+        completionBuffer.flush(ids);
+        var updated = repository.updateCompletedByIdIn(ids, request.completed());
+        List<Long> missingIds = List.of();
+        if (updated < ids.size()) {
+            // only look up which ids are missing when some of them did not change
+            var existingIds = new HashSet<>(repository.findIdsByIdIn(ids));
+            var idsNotInUse = ids.stream()
+                    .filter(id -> !existingIds.contains(id))
+                    .toList();
+            var restoredIds = new HashSet<>(archiveRepository.restore(idsNotInUse));
+            if (!restoredIds.isEmpty())
+                updated += repository.updateCompletedByIdIn(restoredIds, request.completed());
+            missingIds = idsNotInUse.stream()
+                    .filter(id -> !restoredIds.contains(id))
+                    .toList();
+        }
+        outbox.recordChanged(ids);
+        eventPublisher.publishEvent(new TodosBulkUpdatedEvent(ids, request.completed(), updated));
+        return new BulkCompleteTodosResponse(updated, missingIds);
+    }
+
+    @Override
+    @Transactional
+    @CacheEvict(cacheNames = CacheConfig.TODOS_CACHE, key = "#id")
     public void deleteTodo(Long id) {
-        var foundTodo = repository
-                .findById(id)
+        // the deleted todo is reported with its buffered completed status
+        completionBuffer.flush(List.of(id));
+        var deletedTodo = repository
+                .deleteTodo(id)
+                .or(() -> deleteArchived(id))
                 .orElseThrow(() -> new ResourceNotFoundException(
                         "Todo with id '%d' not found, check and try again".formatted(id)));
-
-        repository.deleteById(id);
+        outbox.recordChanged(id);
+        eventPublisher.publishEvent(new TodoChangedEvent(TodoChangedEvent.Type.DELETED, deletedTodo, null));
     }
 
     @Override
+    @Transactional
+    @CacheEvict(cacheNames = CacheConfig.TODOS_CACHE, key = "#id")
     public TodoDto updateTodo(Long id, String name) {
-        var foundTodo = repository
-                .findById(id)
-                .orElseThrow(() -> new ResourceNotFoundException(
-                        "Todo with id '%d' not found, check and try again".formatted(id)));
-        foundTodo.setName(name);
-        return dtoMapper.apply(repository.save(foundTodo));
+        return applyUpdate(id, name, null, TodoChangedEvent.Type.PATCHED);
     }
 
     @Override
+    @Transactional
+    @CacheEvict(cacheNames = CacheConfig.TODOS_CACHE, key = "#request.id()")
     public TodoDto updateTodo(UpdateTodoRequest request) {
-        var foundTodo = repository
-                .findById(request.id())
-                .orElseThrow(() -> new ResourceNotFoundException(
-                        "Todo with id '%d' not found, check and try again".formatted(request.id())));
-        foundTodo.setName(request.name());
-        foundTodo.setCompleted(request.completed());
-        return dtoMapper.apply(repository.save(foundTodo));
+        return applyUpdate(request.id(), request.name(), request.completed(), TodoChangedEvent.Type.UPDATED);
     }
 
     @Override
+    @Transactional
+    // nothing to evict when nothing changes
+    @CacheEvict(cacheNames = CacheConfig.TODOS_CACHE, key = "#request.id()", condition = "!#request.isNoOp()")
     public TodoDto patchTodo(PatchTodoRequest request) {
-        //Check if name is not null and then verify that it has min of 4chars
-        //Check that completed is not null
-        var foundTodo = repository
-                .findById(request.id())
+        // read like a GET, an archived todo is only written back to basic_todo by a change
+        if (request.isNoOp())
+            return getTodo(request.id());
+        var name = request.isNameApplied() ? request.name() : null;
+        if (name == null && completionBuffer.isEnabled())
+            return bufferCompleted(request.id(), request.completed());
+
+        return applyUpdate(request.id(), name, request.completed(), TodoChangedEvent.Type.PATCHED);
+    }
+
+    private TodoDto applyUpdate(Long id, String name, Boolean completed, TodoChangedEvent.Type type) {
+        // a buffered change flushed after this write would overwrite it
+        completionBuffer.flush(List.of(id));
+        var update = repository
+                .updateTodo(id, name, completed)
+                .or(() -> archiveRepository.restore(List.of(id)).isEmpty()
+                        ? Optional.empty()
+                        : repository.updateTodo(id, name, completed))
+                .orElseThrow(() -> new ResourceNotFoundException(
+                        "Todo with id '%d' not found, check and try again".formatted(id)));
+        outbox.recordChanged(id);
+        eventPublisher.publishEvent(new TodoChangedEvent(type, update.previous(), update.current()));
+        return update.current();
+    }
+
+    // recorded in the outbox when the buffer flushes the change
+    private TodoDto bufferCompleted(Long id, boolean completed) {
+        var previous = completionBuffer.pending(id)
+                .map(TodoCompletionBuffer.PendingCompletion::todo)
+                .orElseGet(() -> findTodoRestoringArchived(id));
+        if (previous.completed() == completed)
+            return previous;
+
+        var current = completionBuffer.buffer(previous, completed);
+        eventPublisher.publishEvent(new TodoChangedEvent(TodoChangedEvent.Type.PATCHED, previous, current));
+        return current;
+    }
+
+    private TodoDto findTodo(Long id) {
+        return repository
+                .findTodoDtoById(id)
+                .orElseThrow(() -> new ResourceNotFoundException(
+                        "Todo with id '%d' not found, check and try again".formatted(id)));
+    }
+
+    // the buffered change is written to basic_todo, so an archived todo has to be back in use first
+    private TodoDto findTodoRestoringArchived(Long id) {
+        return repository
+                .findTodoDtoById(id)
+                .or(() -> archiveRepository.restore(List.of(id)).isEmpty()
+                        ? Optional.empty()
+                        : repository.findTodoDtoById(id))
                 .orElseThrow(() -> new ResourceNotFoundException(
-                        "Todo with id '%d' not found, check and try again".formatted(request.id())));
-        if (validatePatchRequestName(request))
-            foundTodo.setName(request.name());
+                        "Todo with id '%d' not found, check and try again".formatted(id)));
+    }
 
-        if (request.completed() != null)
-            foundTodo.setCompleted(request.completed());
+    private Optional<TodoDto> deleteArchived(Long id) {
+        var archivedTodo = archiveRepository.findTodoDtoById(id);
+        // deleted concurrently when nothing matches
+        if (archivedTodo.isEmpty() || archiveRepository.deleteAllByIdIn(List.of(id)) == 0)
+            return Optional.empty();
+        return archivedTodo;
+    }
 
-        return dtoMapper.apply(repository.save(foundTodo));
+    private TodoDto withPendingCompletion(TodoDto todo) {
+        return completionBuffer.pending(todo.id())
+                .map(pending -> pending.applyTo(todo))
+                .orElse(todo);
     }
 
-    private boolean validatePatchRequestName(PatchTodoRequest request) {
-        if(request.name() != null)
-            return (!request.name().isBlank() && request.name().length() >= 4);
-        return false;
+    private TodoPageDto toPage(List<Todo> todos, int limit) {
+        if (todos.size() <= limit)
+            return new TodoPageDto(todos.stream().map(dtoMapper).map(this::withPendingCompletion).toList(), null);
+
+        var pageTodos = todos.subList(0, limit);
+        var last = pageTodos.getLast();
+        var nextCursor = new TodoCursor(last.getCreatedAt(), last.getId()).encode();
+        return new TodoPageDto(pageTodos.stream().map(dtoMapper).map(this::withPendingCompletion).toList(), nextCursor);
     }
 }
@@ -0,0 +1,8 @@
+package io.eskay.basictodo.service;
+
+import io.eskay.basictodo.dto.response.TodoStatsDto;
+
+public interface TodoStatsService {
+    TodoStatsDto getStats();
+    void reconcile();
+}
@@ -0,0 +1,150 @@
+package io.eskay.basictodo.service;
+
+import io.eskay.basictodo.config.ReplicaRouting;
+import io.eskay.basictodo.dto.response.TodoDto;
+import io.eskay.basictodo.dto.response.TodoStatsDto;
+import io.eskay.basictodo.event.TodoChangedEvent;
+import io.eskay.basictodo.event.TodosBulkUpdatedEvent;
+import io.eskay.basictodo.repository.TodoArchiveRepository;
+import io.eskay.basictodo.repository.TodoDailyCount;
+import io.eskay.basictodo.repository.TodoRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps todo counts in memory as a baseline taken from the database plus the writes this node made since.
+ * Writes only bump striped counters, and the baseline is periodically recomputed with SQL aggregates,
+ * which also corrects for writes made by other nodes or missed here.
+ * <p>
+ * The counts are eventually consistent: a write committing while a reconcile runs can be counted twice, or a chunk
+ * of archived todos left out, until the next reconcile.
+ */
+@Service
+public class TodoStatsServiceImpl implements TodoStatsService {
+
+    private final TodoRepository repository;
+    private final TodoArchiveRepository archiveRepository;
+    private final TodoCompletionBuffer completionBuffer;
+    private final int days;
+
+    private final LongAdder totalDelta = new LongAdder();
+    private final LongAdder completedDelta = new LongAdder();
+    private final ConcurrentHashMap<LocalDate, LongAdder> createdPerDayDelta = new ConcurrentHashMap<>();
+    private volatile Baseline baseline = new Baseline(0, 0, Map.of());
+    // not synchronized, a virtual thread blocked on the queries below would pin its carrier thread
+    private final ReentrantLock reconcileLock = new ReentrantLock();
+
+    public TodoStatsServiceImpl(TodoRepository repository,
+                                TodoArchiveRepository archiveRepository,
+                                TodoCompletionBuffer completionBuffer,
+                                @Value("${todo.stats.days}") int days) {
+        this.repository = repository;
+        this.archiveRepository = archiveRepository;
+        this.completionBuffer = completionBuffer;
+        this.days = days;
+    }
+
+    @Override
+    public TodoStatsDto getStats() {
+        var current = baseline;
+        var total = current.total() + totalDelta.sum();
+        var completed = current.completed() + completedDelta.sum();
+
+        var createdPerDay = new LinkedHashMap<LocalDate, Long>();
+        var today = LocalDate.now();
+        for (var day = today.minusDays(days - 1); !day.isAfter(today); day = day.plusDays(1)) {
+            var delta = createdPerDayDelta.get(day);
+            createdPerDay.put(day, current.createdPerDay().getOrDefault(day, 0L) + (delta == null ? 0 : delta.sum()));
+        }
+        return new TodoStatsDto(total, completed, total - completed, createdPerDay);
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${todo.stats.reconcile-interval}")
+    public void reconcile() {
+        reconcileLock.lock();
+        try {
+            // the aggregates have to include every write counted here, which a replica may not have yet
+            ReplicaRouting.runOnPrimary(this::reconcileBaseline);
+        } finally {
+            reconcileLock.unlock();
+        }
+    }
+
+    private void reconcileBaseline() {
+        var since = LocalDate.now().minusDays(days - 1);
+        createdPerDayDelta.keySet().removeIf(day -> day.isBefore(since));
+        // buffered completed changes are counted already, the aggregates have to include them as well
+        completionBuffer.flush();
+
+        // writes counted up to here are part of what the aggregates below will see. Writes are counted after they
+        // commit, so one committing before the aggregates but counted after this snapshot is in both until the
+        // next reconcile
+        var totalBefore = totalDelta.sum();
+        var completedBefore = completedDelta.sum();
+        var createdPerDayBefore = createdPerDayDelta.entrySet()
+                .stream()
+                .collect(Collectors.toMap(Map.Entry::getKey, entry -> entry.getValue().sum()));
+
+        // archived todos are all completed, and still count. A chunk archived in between the queries is left out
+        // until the next reconcile
+        var archived = archiveRepository.count();
+        var total = repository.count() + archived;
+        var completed = repository.countByCompleted(true) + archived;
+        var createdPerDay = repository.countCreatedPerDaySince(since)
+                .stream()
+                .collect(Collectors.toMap(TodoDailyCount::day, TodoDailyCount::count, Long::sum, HashMap::new));
+        archiveRepository.countCreatedPerDaySince(since)
+                .forEach(count -> createdPerDay.merge(count.day(), count.count(), Long::sum));
+
+        var createdPerDayBaseline = new HashMap<LocalDate, Long>();
+        var countedDays = new HashSet<>(createdPerDay.keySet());
+        countedDays.addAll(createdPerDayBefore.keySet());
+        for (var day : countedDays)
+            createdPerDayBaseline.put(day,
+                    createdPerDay.getOrDefault(day, 0L) - createdPerDayBefore.getOrDefault(day, 0L));
+
+        baseline = new Baseline(total - totalBefore, completed - completedBefore, Map.copyOf(createdPerDayBaseline));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTodoChanged(TodoChangedEvent event) {
+        var previous = event.previous();
+        var current = event.current();
+        if (previous == null) {
+            count(current, 1);
+        } else if (current == null) {
+            count(previous, -1);
+        } else if (previous.completed() != current.completed()) {
+            completedDelta.add(current.completed() ? 1 : -1);
+        }
+    }
+
+    // only todos whose status changed are updated and counted, so no recount is needed
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTodosBulkUpdated(TodosBulkUpdatedEvent event) {
+        completedDelta.add(event.completed() ? event.updated() : -event.updated());
+    }
+
+    private void count(TodoDto todo, int amount) {
+        totalDelta.add(amount);
+        if (todo.completed())
+            completedDelta.add(amount);
+        createdPerDayDelta.computeIfAbsent(todo.created_at(), day -> new LongAdder()).add(amount);
+    }
+
+    private record Baseline(long total, long completed, Map<LocalDate, Long> createdPerDay) {
+    }
+}
@@ -0,0 +1 @@
+create sequence basic_todo_seq start with 1 increment by 50;
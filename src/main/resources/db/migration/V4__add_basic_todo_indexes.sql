@@ -0,0 +1,5 @@
+-- keyset pages and the unfiltered listing walk todos in (created_at, id) order
+create index idx_basic_todo_created_at_id on basic_todo (created_at, id);
+
+-- lookups and pages filtered by completed status
+create index idx_basic_todo_completed_created_at_id on basic_todo (completed, created_at, id);
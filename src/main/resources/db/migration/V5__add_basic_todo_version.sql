@@ -0,0 +1,2 @@
+-- bumped on every write, single todos are served with an ETag derived from it
+alter table basic_todo add column version bigint not null default 0;
@@ -0,0 +1,11 @@
+-- one row per committed todo write, every node polls it to drop what it cached about todos written elsewhere
+create table todo_outbox (
+    id bigint generated by default as identity primary key,
+    -- null when the write changed every todo
+    todo_id bigint,
+    node_id varchar(36) not null,
+    created_at timestamp with time zone not null default current_timestamp
+);
+
+-- pollers read the rows created since their last poll, old rows are deleted by creation time
+create index idx_todo_outbox_created_at on todo_outbox (created_at);
@@ -0,0 +1,12 @@
+-- completed todos moved out of basic_todo once they are old, see TodoArchiver. Only completed todos are archived,
+-- so there is no completed column
+create table basic_todo_archive (
+    id bigint not null primary key,
+    name text not null,
+    created_at date not null,
+    version bigint not null,
+    archived_at timestamp with time zone not null default current_timestamp
+);
+
+-- creation counts per day for the todo statistics
+create index idx_basic_todo_archive_created_at on basic_todo_archive (created_at);
@@ -0,0 +1,49 @@
+package io.eskay.basictodo;
+
+import org.hamcrest.CoreMatchers;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+@SpringBootTest(properties = {
+        "todo.admission.enabled=true",
+        "spring.jpa.properties.hibernate.generate_statistics=true"})
+@AutoConfigureMockMvc
+@AutoConfigureObservability(tracing = false)
+public class MetricsIntegrationTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    public void prometheus_ExposesEndpointRepositoryPoolHibernateCacheAdmissionAndJvmMetrics() throws Exception {
+        //Arrange
+        mockMvc.perform(get("/api/todos"));
+
+        //Act
+        var response = mockMvc.perform(get("/actuator/prometheus"));
+
+        //Assert
+        response.andExpect(MockMvcResultMatchers.status().isOk());
+        response.andExpect(MockMvcResultMatchers.content().string(CoreMatchers.allOf(
+                CoreMatchers.containsString("http_server_requests_seconds_bucket{"),
+                CoreMatchers.containsString("uri=\"/api/todos\""),
+                CoreMatchers.containsString("spring_data_repository_invocations_seconds_bucket{"),
+                CoreMatchers.containsString("repository=\"TodoRepository\""),
+                CoreMatchers.containsString("hikaricp_connections_pending{"),
+                CoreMatchers.containsString("hibernate_statements_total{"),
+                CoreMatchers.containsString("cache_evictions_total{"),
+                CoreMatchers.containsString("cache_gets_total{application=\"TodoApplication\",cache=\"todos\",cache_manager=\"cacheManager\""),
+                CoreMatchers.containsString("cache_gets_total{application=\"TodoApplication\",cache=\"todoListResponses\",cache_manager=\"cacheManager\""),
+                CoreMatchers.containsString("cache_weight_bytes{"),
+                CoreMatchers.containsString("todo_admission_limit{"),
+                CoreMatchers.containsString("todo_admission_rejected_total{"),
+                CoreMatchers.containsString("jvm_gc_memory_allocated_bytes_total{"))));
+    }
+}
@@ -0,0 +1,147 @@
+package io.eskay.basictodo;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.eskay.basictodo.dto.request.CreateTodoRequest;
+import io.eskay.basictodo.dto.response.TodoDto;
+import jakarta.servlet.http.Cookie;
+import org.assertj.core.api.Assertions;
+import org.flywaydb.core.Flyway;
+import org.hamcrest.CoreMatchers;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+/*
+ * Runs against two H2 databases, the usual one as the primary and a second one standing in for its replica.
+ * Nothing replicates between them, so where a todo can be read from shows which database served the read.
+ */
+@SpringBootTest(properties = {
+        "todo.replica.url=" + ReplicaRoutingIntegrationTests.REPLICA_URL,
+        "todo.replica.username=sa",
+        "todo.replica.password="})
+@AutoConfigureMockMvc
+public class ReplicaRoutingIntegrationTests {
+
+    static final String REPLICA_URL = "jdbc:h2:mem:todo-replica;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper mapper;
+
+    @Autowired
+    @Qualifier("primaryDataSource")
+    private DataSource primaryDataSource;
+
+    @Autowired
+    @Qualifier("replicaDataSource")
+    private DataSource replicaDataSource;
+
+    @BeforeAll
+    public static void migrateReplica() {
+        Flyway.configure()
+                .dataSource(REPLICA_URL, "sa", "")
+                .locations("classpath:db/migration")
+                .load()
+                .migrate();
+    }
+
+    @BeforeEach
+    public void seedReplicaOnlyTodo() {
+        var replica = new JdbcTemplate(replicaDataSource);
+        replica.update("delete from basic_todo");
+        replica.update("insert into basic_todo (id, name, created_at, completed) values (-1, 'Only on the replica', current_date, false)");
+    }
+
+    @Test
+    public void getAllTodos_ReadsFromReplica() throws Exception {
+        //Act
+        var response = mockMvc.perform(get("/api/todos"));
+
+        //Assert
+        response.andExpect(MockMvcResultMatchers.status().isOk());
+        response.andExpect(MockMvcResultMatchers.jsonPath("[0].name", CoreMatchers.is("Only on the replica")));
+        response.andExpect(MockMvcResultMatchers.jsonPath("length()", CoreMatchers.is(1)));
+    }
+
+    @Test
+    public void createTodo_WritesToPrimaryAndHandsOutReadYourWritesCookie() throws Exception {
+        //Act
+        var response = mockMvc.perform(post("/api/todos")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(mapper.writeValueAsString(new CreateTodoRequest("Go to the replica meeting"))));
+
+        //Assert
+        response.andExpect(MockMvcResultMatchers.status().isCreated());
+        response.andExpect(MockMvcResultMatchers.cookie().maxAge("todo-read-primary", 2));
+        var created = mapper.readValue(response.andReturn().getResponse().getContentAsString(), TodoDto.class);
+        var countOnPrimary = new JdbcTemplate(primaryDataSource)
+                .queryForObject("select count(*) from basic_todo where id = ?", Long.class, created.id());
+        var countOnReplica = new JdbcTemplate(replicaDataSource)
+                .queryForObject("select count(*) from basic_todo where id = ?", Long.class, created.id());
+        Assertions.assertThat(countOnPrimary).isEqualTo(1L);
+        Assertions.assertThat(countOnReplica).isZero();
+    }
+
+    @Test
+    public void getAllTodos_WithReadYourWritesCookie_ReadsFromPrimary() throws Exception {
+        //Arrange
+        var created = mockMvc.perform(post("/api/todos")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(mapper.writeValueAsString(new CreateTodoRequest("Read my own write"))))
+                .andReturn()
+                .getResponse();
+        var cookie = created.getCookie("todo-read-primary");
+        var todo = mapper.readValue(created.getContentAsString(), TodoDto.class);
+
+        //Act
+        var response = mockMvc.perform(get("/api/todos").cookie(new Cookie(cookie.getName(), cookie.getValue())));
+
+        //Assert
+        response.andExpect(MockMvcResultMatchers.status().isOk());
+        response.andExpect(MockMvcResultMatchers.jsonPath(
+                "[?(@.id == %d)].name".formatted(todo.id()), CoreMatchers.hasItem("Read my own write")));
+        response.andExpect(MockMvcResultMatchers.jsonPath(
+                "[?(@.id == -1)]", CoreMatchers.equalTo(List.of())));
+    }
+
+    @Test
+    public void getAllTodos_RightAfterWrite_IsNotTagged() throws Exception {
+        //Arrange
+        mockMvc.perform(post("/api/todos")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(mapper.writeValueAsString(new CreateTodoRequest("Go for a walk"))));
+
+        //Act
+        var response = mockMvc.perform(get("/api/todos"));
+
+        //Assert
+        // the replica may not show the write yet, a client must not get a 304 for this body later
+        response.andExpect(MockMvcResultMatchers.status().isOk());
+        response.andExpect(MockMvcResultMatchers.header().doesNotExist("ETag"));
+    }
+
+    @Test
+    public void getTodo_ReadsFromPrimary() throws Exception {
+        //Act
+        var response = mockMvc.perform(get("/api/todos/-1"));
+
+        //Assert
+        response.andExpect(MockMvcResultMatchers.status().isNotFound());
+    }
+}
@@ -0,0 +1,60 @@
+package io.eskay.basictodo;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.eskay.basictodo.dto.request.CreateTodoRequest;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import java.time.Duration;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class TodoChangeFeedIntegrationTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper mapper;
+
+    @Test
+    public void events_ReceivesCreatedTodo() throws Exception {
+        //Arrange
+        var subscription = mockMvc.perform(get("/api/todos/events").accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(MockMvcResultMatchers.request().asyncStarted())
+                .andReturn()
+                .getResponse();
+
+        //Act
+        mockMvc.perform(post("/api/todos")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(mapper.writeValueAsString(new CreateTodoRequest("Go to the feed meeting"))))
+                .andExpect(MockMvcResultMatchers.status().isCreated());
+
+        //Assert
+        var events = awaitContent(subscription, "\"name\":\"Go to the feed meeting\"");
+        Assertions.assertThat(events).startsWith("retry:3000\n:subscribed\n\n");
+        Assertions.assertThat(events).contains("event:created\ndata:{\"id\":");
+    }
+
+    // events are sent from another thread, shortly after the write committed
+    private static String awaitContent(MockHttpServletResponse response, String expected) throws Exception {
+        var deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        var content = response.getContentAsString();
+        while (!content.contains(expected) && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+            content = response.getContentAsString();
+        }
+        return content;
+    }
+}
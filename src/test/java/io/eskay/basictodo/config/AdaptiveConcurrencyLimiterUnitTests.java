@@ -0,0 +1,158 @@
+package io.eskay.basictodo.config;
+
+import io.eskay.basictodo.config.AdaptiveConcurrencyLimiter.Priority;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+public class AdaptiveConcurrencyLimiterUnitTests {
+
+    private static final long USUAL_LATENCY = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final String GET_TODO = "GET /api/todos/{id}";
+    private static final String GET_TODOS = "GET /api/todos";
+
+    @Test
+    public void tryAcquire_BeyondLimit_Rejects() {
+        //Arrange
+        var limiter = new AdaptiveConcurrencyLimiter(10, 5, 100, 2.0, 0.9, Priority.READ, 0.8);
+        for (var i = 0; i < 10; i++)
+            limiter.tryAcquire(Priority.WRITE);
+
+        //Act
+        var admitted = limiter.tryAcquire(Priority.WRITE);
+
+        //Assert
+        Assertions.assertThat(admitted).isFalse();
+        Assertions.assertThat(limiter.inFlight()).isEqualTo(10);
+        Assertions.assertThat(limiter.rejected(Priority.WRITE)).isEqualTo(1);
+    }
+
+    @Test
+    public void tryAcquire_ShedsLowerPriorityFirst() {
+        //Arrange
+        var limiter = new AdaptiveConcurrencyLimiter(10, 5, 100, 2.0, 0.9, Priority.READ, 0.8);
+        for (var i = 0; i < 8; i++)
+            limiter.tryAcquire(Priority.WRITE);
+
+        //Act
+        var read = limiter.tryAcquire(Priority.READ);
+        var write = limiter.tryAcquire(Priority.WRITE);
+
+        //Assert
+        Assertions.assertThat(read).isFalse();
+        Assertions.assertThat(write).isTrue();
+    }
+
+    @Test
+    public void release_WithUsualLatencyUnderLoad_GrowsLimit() {
+        //Arrange
+        var limiter = new AdaptiveConcurrencyLimiter(10, 5, 100, 2.0, 0.9, Priority.READ, 0.8);
+
+        //Act
+        // ten requests in progress at a time, each finishing as fast as usual
+        for (var i = 0; i < 10; i++)
+            limiter.tryAcquire(Priority.WRITE);
+        for (var i = 0; i < 500; i++) {
+            limiter.release(GET_TODO, USUAL_LATENCY);
+            limiter.tryAcquire(Priority.WRITE);
+        }
+
+        //Assert
+        Assertions.assertThat(limiter.limit()).isGreaterThan(10);
+    }
+
+    @Test
+    public void release_WithSlowRequests_ShrinksLimitDownToMin() {
+        //Arrange
+        var limiter = new AdaptiveConcurrencyLimiter(50, 5, 100, 2.0, 0.9, Priority.READ, 0.8);
+        for (var i = 0; i < 100; i++) {
+            limiter.tryAcquire(Priority.WRITE);
+            limiter.release(GET_TODO, USUAL_LATENCY);
+        }
+
+        //Act
+        limiter.tryAcquire(Priority.WRITE);
+        limiter.release(GET_TODO, USUAL_LATENCY * 10);
+        var afterOneSlowRequest = limiter.limit();
+        for (var i = 0; i < 100; i++) {
+            limiter.tryAcquire(Priority.WRITE);
+            limiter.release(GET_TODO, USUAL_LATENCY * 10);
+        }
+
+        //Assert
+        // one slow request is noise, a run of them is congestion
+        Assertions.assertThat(afterOneSlowRequest).isEqualTo(50);
+        Assertions.assertThat(limiter.limit()).isEqualTo(5);
+    }
+
+    @Test
+    public void release_WithSlowRequests_BacksOffOncePerRoundTrip() {
+        //Arrange
+        var limiter = new AdaptiveConcurrencyLimiter(50, 5, 100, 2.0, 0.9, Priority.READ, 0.8);
+        for (var i = 0; i < 100; i++) {
+            limiter.tryAcquire(Priority.WRITE);
+            limiter.release(GET_TODO, USUAL_LATENCY);
+        }
+
+        //Act
+        // twenty requests in progress all finish slow, the ones after the first backoff only show the same queue
+        for (var i = 0; i < 20; i++)
+            limiter.tryAcquire(Priority.WRITE);
+        for (var i = 0; i < 20; i++)
+            limiter.release(GET_TODO, USUAL_LATENCY * 10);
+
+        //Assert
+        Assertions.assertThat(limiter.limit()).isEqualTo(45);
+    }
+
+    @Test
+    public void release_WithRoutesOfDifferentSpeeds_KeepsLimit() {
+        //Arrange
+        var limiter = new AdaptiveConcurrencyLimiter(50, 5, 100, 2.0, 0.9, Priority.READ, 0.8);
+        var random = new Random(42);
+        for (var i = 0; i < 30; i++)
+            limiter.tryAcquire(Priority.READ);
+
+        //Act
+        // thirty reads in progress: cached lookups at 0.1ms, listings mostly at 1ms and every fifth at 20ms
+        for (var i = 0; i < 20_000; i++) {
+            if (random.nextBoolean()) {
+                limiter.release(GET_TODO, TimeUnit.MICROSECONDS.toNanos(100));
+            } else {
+                var latency = random.nextInt(5) == 0 ? 20 : 1;
+                limiter.release(GET_TODOS, TimeUnit.MILLISECONDS.toNanos(latency));
+            }
+            limiter.tryAcquire(Priority.READ);
+        }
+
+        //Assert
+        Assertions.assertThat(limiter.limit()).isGreaterThanOrEqualTo(50);
+        Assertions.assertThat(limiter.inFlight()).isEqualTo(30);
+        Assertions.assertThat(limiter.rejected(Priority.READ)).isZero();
+    }
+
+    @Test
+    public void bindTo_PublishesLimiterState() {
+        //Arrange
+        var limiter = new AdaptiveConcurrencyLimiter(10, 5, 100, 2.0, 0.9, Priority.WRITE, 0.5);
+        var registry = new SimpleMeterRegistry();
+        limiter.bindTo(registry);
+
+        //Act
+        limiter.tryAcquire(Priority.WRITE);
+        limiter.release(GET_TODO, USUAL_LATENCY);
+        for (var i = 0; i < 6; i++)
+            limiter.tryAcquire(Priority.WRITE);
+
+        //Assert
+        Assertions.assertThat(registry.get("todo.admission.limit").gauge().value()).isEqualTo(10);
+        Assertions.assertThat(registry.get("todo.admission.in.flight").gauge().value()).isEqualTo(5);
+        Assertions.assertThat(registry.get("todo.admission.rejected").tag("priority", "write").functionCounter().count())
+                .isEqualTo(1);
+        Assertions.assertThat(registry.get("todo.admission.latency.baseline").tag("route", GET_TODO).timeGauge()
+                .value(TimeUnit.NANOSECONDS)).isEqualTo(USUAL_LATENCY);
+    }
+}
@@ -0,0 +1,80 @@
+package io.eskay.basictodo.config;
+
+import io.eskay.basictodo.config.AotConditionsConfig.BuiltWithVirtualThreads;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.mock.env.MockEnvironment;
+
+public class AotConditionsConfigUnitTests {
+
+    private final DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+
+    @Test
+    public void aotConditionsCheck_PassesWhenPropertiesAreSetAsWhileBuilding() {
+        //Arrange
+        beanFactory.registerSingleton("builtWithVirtualThreads", new BuiltWithVirtualThreads());
+        var environment = new MockEnvironment().withProperty("spring.threads.virtual.enabled", "true");
+
+        //Act
+        var check = new AotConditionsConfig().aotConditionsCheck(environment,
+                beanFactory.getBeanProvider(ReplicaRoutingConfig.class),
+                beanFactory.getBeanProvider(AdmissionControlConfig.class),
+                beanFactory.getBeanProvider(BuiltWithVirtualThreads.class));
+
+        //Assert
+        Assertions.assertThatNoException().isThrownBy(check::afterSingletonsInstantiated);
+    }
+
+    @Test
+    public void aotConditionsCheck_FailsWhenReplicaUrlIsSetAfterBuilding() {
+        //Arrange
+        var environment = new MockEnvironment().withProperty("todo.replica.url", "jdbc:postgresql://replica/todo");
+
+        //Act
+        var check = new AotConditionsConfig().aotConditionsCheck(environment,
+                beanFactory.getBeanProvider(ReplicaRoutingConfig.class),
+                beanFactory.getBeanProvider(AdmissionControlConfig.class),
+                beanFactory.getBeanProvider(BuiltWithVirtualThreads.class));
+
+        //Assert
+        Assertions.assertThatThrownBy(check::afterSingletonsInstantiated)
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageStartingWith("'todo.replica.url' is set, but was not set");
+    }
+
+    @Test
+    public void aotConditionsCheck_FailsWhenAdmissionControlIsEnabledAfterBuilding() {
+        //Arrange
+        var environment = new MockEnvironment().withProperty("todo.admission.enabled", "true");
+
+        //Act
+        var check = new AotConditionsConfig().aotConditionsCheck(environment,
+                beanFactory.getBeanProvider(ReplicaRoutingConfig.class),
+                beanFactory.getBeanProvider(AdmissionControlConfig.class),
+                beanFactory.getBeanProvider(BuiltWithVirtualThreads.class));
+
+        //Assert
+        Assertions.assertThatThrownBy(check::afterSingletonsInstantiated)
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageStartingWith("'todo.admission.enabled' is set, but was not set");
+    }
+
+    @Test
+    public void aotConditionsCheck_FailsWhenVirtualThreadsAreDisabledAfterBuilding() {
+        //Arrange
+        beanFactory.registerSingleton("builtWithVirtualThreads", new BuiltWithVirtualThreads());
+        var environment = new MockEnvironment();
+
+        //Act
+        var check = new AotConditionsConfig().aotConditionsCheck(environment,
+                beanFactory.getBeanProvider(ReplicaRoutingConfig.class),
+                beanFactory.getBeanProvider(AdmissionControlConfig.class),
+                beanFactory.getBeanProvider(BuiltWithVirtualThreads.class));
+
+        //Assert
+        Assertions.assertThatThrownBy(check::afterSingletonsInstantiated)
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageStartingWith("'spring.threads.virtual.enabled' is not set, but was set");
+    }
+}
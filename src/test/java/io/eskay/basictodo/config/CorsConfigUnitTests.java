@@ -0,0 +1,36 @@
+package io.eskay.basictodo.config;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class CorsConfigUnitTests {
+
+    @Test
+    public void checkOrigin_AcceptsOriginWithCredentials() {
+        //Act
+        var origin = CorsConfig.checkOrigin("http://localhost:3000/", true);
+
+        //Assert
+        Assertions.assertThat(origin).isEqualTo("http://localhost:3000/");
+    }
+
+    @Test
+    public void checkOrigin_AcceptsAnyOriginWithoutCredentials() {
+        //Act
+        var origin = CorsConfig.checkOrigin("*", false);
+
+        //Assert
+        Assertions.assertThat(origin).isEqualTo("*");
+    }
+
+    @Test
+    public void checkOrigin_RejectsAnyOriginWithCredentials() {
+        //Act
+        var thrown = Assertions.catchThrowable(() -> CorsConfig.checkOrigin("*", true));
+
+        //Assert
+        Assertions.assertThat(thrown)
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageStartingWith("cors.frontend.url cannot be '*' with replica routing");
+    }
+}
@@ -1,13 +1,24 @@
 package io.eskay.basictodo.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import io.eskay.basictodo.config.AdaptiveConcurrencyLimiter;
+import io.eskay.basictodo.dto.request.BulkCompleteTodosRequest;
 import io.eskay.basictodo.dto.request.CreateTodoRequest;
 import io.eskay.basictodo.dto.request.UpdateTodoRequest;
+import io.eskay.basictodo.dto.response.BulkCompleteTodosResponse;
 import io.eskay.basictodo.dto.response.TodoDto;
+import io.eskay.basictodo.dto.response.TodoPageDto;
+import io.eskay.basictodo.dto.response.TodoStatsDto;
 import io.eskay.basictodo.entity.Todo;
+import io.eskay.basictodo.service.TodoChangeFeed;
+import io.eskay.basictodo.service.TodoGeneration;
+import io.eskay.basictodo.service.TodoListResponseCache;
 import io.eskay.basictodo.service.TodoService;
+import io.eskay.basictodo.service.TodoStatsService;
 import org.assertj.core.api.Assertions;
 import org.hamcrest.CoreMatchers;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
@@ -15,22 +26,35 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
 
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 
-@WebMvcTest(controllers = TodoController.class)
+@WebMvcTest(controllers = TodoController.class, properties = "todo.admission.enabled=true")
 @AutoConfigureMockMvc(addFilters = false)
 @ExtendWith(MockitoExtension.class)
+@Import(TodoListResponseCache.class)
 public class TodoControllerUnitTests {
 
+    // listings are cached per generation, a fresh one per test keeps them from leaking into the next
+    private static final AtomicLong GENERATIONS = new AtomicLong();
+
     /*
     *todoservice
     * objectMapper
@@ -42,14 +66,32 @@ public class TodoControllerUnitTests {
     @Autowired
     private ObjectMapper mapper;
 
+    @Autowired
+    private AdaptiveConcurrencyLimiter concurrencyLimiter;
+
     @MockitoBean
     private TodoService todoService;
 
+    @MockitoBean
+    private TodoStatsService todoStatsService;
+
+    @MockitoBean
+    private TodoGeneration todoGeneration;
+
+    @MockitoBean
+    private TodoChangeFeed todoChangeFeed;
+
+    @BeforeEach
+    public void nextGeneration() {
+        when(todoGeneration.current()).thenReturn(GENERATIONS.incrementAndGet());
+        when(todoGeneration.bootId()).thenReturn("b00t");
+    }
+
     @Test
     public void createTodo_ReturnCreatedTodoDto() throws Exception {
         //Arrange
         var request = new CreateTodoRequest("Go to parents meeting");
-        var todoDto = new TodoDto(1L,request.name(),LocalDate.now(),false);
+        var todoDto = new TodoDto(1L,request.name(),LocalDate.now(),false,0L);
         when(todoService.createTodo(request)).thenReturn(todoDto);
 
         //Act
@@ -67,8 +109,8 @@ public class TodoControllerUnitTests {
     @Test
     public void getAllTodos_ReturnsTodoDtoList() throws Exception{
         //Arrange
-        var todoDto = new TodoDto(7L,"Play music",LocalDate.now(),true);
-        var todoDto2 = new TodoDto(8L,"Go for a walk",LocalDate.now(),false);
+        var todoDto = new TodoDto(7L,"Play music",LocalDate.now(),true,0L);
+        var todoDto2 = new TodoDto(8L,"Go for a walk",LocalDate.now(),false,0L);
         when(todoService.getAllTodos()).thenReturn(List.of(todoDto,todoDto2));
 
         //Act
@@ -80,6 +122,206 @@ public class TodoControllerUnitTests {
         System.out.println(response.andReturn().getResponse().getContentAsString());
     }
 
+    @Test
+    public void getAllTodos_ServesRepeatedReadsOfAGenerationFromCache() throws Exception {
+        //Arrange
+        var todoDto = new TodoDto(7L,"Play music",LocalDate.now(),true,0L);
+        when(todoService.getAllTodos()).thenReturn(List.of(todoDto));
+        var first = mockMvc.perform(get("/api/todos")).andReturn().getResponse().getContentAsString();
+
+        //Act
+        var response = mockMvc.perform(get("/api/todos"));
+
+        //Assert
+        response.andExpect(MockMvcResultMatchers.status().isOk());
+        response.andExpect(MockMvcResultMatchers.content().contentType(MediaType.APPLICATION_JSON));
+        response.andExpect(MockMvcResultMatchers.content().string(first));
+        verify(todoService, times(1)).getAllTodos();
+    }
+
+    @Test
+    public void getAllTodos_ReloadsAfterWrite() throws Exception {
+        //Arrange
+        var todoDto = new TodoDto(7L,"Play music",LocalDate.now(),true,0L);
+        when(todoService.getAllTodosByCompletedStatus(true)).thenReturn(List.of(todoDto));
+        mockMvc.perform(get("/api/todos").queryParam("completed","true"));
+        when(todoGeneration.current()).thenReturn(GENERATIONS.incrementAndGet());
+
+        //Act
+        var response = mockMvc.perform(get("/api/todos").queryParam("completed","true"));
+
+        //Assert
+        response.andExpect(MockMvcResultMatchers.status().isOk());
+        verify(todoService, times(2)).getAllTodosByCompletedStatus(true);
+    }
+
+    @Test
+    public void getAllTodos_IncludingArchived_AppendsArchivedTodosWithoutCaching() throws Exception {
+        //Arrange
+        var todoDto = new TodoDto(7L,"Play music",LocalDate.now(),true,0L);
+        var archivedTodoDto = new TodoDto(2L,"Pay the rent",LocalDate.now().minusYears(1),true,1L);
+        when(todoService.getAllTodosByCompletedStatus(true)).thenReturn(List.of(todoDto));
+        when(todoService.getArchivedTodos()).thenReturn(List.of(archivedTodoDto));
+        mockMvc.perform(get("/api/todos").queryParam("completed","true").queryParam("includeArchived","true"));
+
+        //Act
+        var response = mockMvc.perform(get("/api/todos")
+                .queryParam("completed","true")
+                .queryParam("includeArchived","true"));
+
+        //Assert
+        response.andExpect(MockMvcResultMatchers.status().isOk());
+        response.andExpect(MockMvcResultMatchers.jsonPath("[*].id", CoreMatchers.is(List.of(7, 2))));
+        verify(todoService, times(2)).getArchivedTodos();
+    }
+
+    @Test
+    public void getAllTodos_PendingIncludingArchived_DoesNotReadArchive() throws Exception {
+        //Arrange
+        var todoDto = new TodoDto(8L,"Go for a walk",LocalDate.now(),false,0L);
+        when(todoService.getAllTodosByCompletedStatus(false)).thenReturn(List.of(todoDto));
+
+        //Act
+        var response = mockMvc.perform(get("/api/todos")
+                .queryParam("completed","false")
+                .queryParam("includeArchived","true"));
+
+        //Assert
+        response.andExpect(MockMvcResultMatchers.status().isOk());
+        response.andExpect(MockMvcResultMatchers.jsonPath("length()", CoreMatchers.is(1)));
+        verify(todoService, never()).getArchivedTodos();
+    }
+
+    @Test
+    public void getAllTodos_WhileReplicaCatchesUp_DoesNotCache() throws Exception {
+        //Arrange
+        when(todoGeneration.isSettling()).thenReturn(true);
+        when(todoService.getAllTodos()).thenReturn(List.of());
+        mockMvc.perform(get("/api/todos"));
+
+        //Act
+        var response = mockMvc.perform(get("/api/todos"));
+
+        //Assert
+        response.andExpect(MockMvcResultMatchers.status().isOk());
+        response.andExpect(MockMvcResultMatchers.header().doesNotExist("ETag"));
+        verify(todoService, times(2)).getAllTodos();
+    }
+
+    @Test
+    public void getAllTodos_SendsLargeListingGzipped() throws Exception {
+        //Arrange
+        var todos = new ArrayList<TodoDto>();
+        for (long id = 1; id <= 100; id++)
+            todos.add(new TodoDto(id,"Go for a walk",LocalDate.now(),false,0L));
+        when(todoService.getAllTodos()).thenReturn(todos);
+
+        //Act
+        var response = mockMvc.perform(get("/api/todos").header("Accept-Encoding", "br, gzip"))
+                .andReturn()
+                .getResponse();
+
+        //Assert
+        Assertions.assertThat(response.getHeader("Content-Encoding")).isEqualTo("gzip");
+        Assertions.assertThat(response.getHeader("Vary")).contains("Accept-Encoding");
+        Assertions.assertThat(response.getHeader("ETag")).isEqualTo("W/\"b00t-7\"");
+        try (var json = new GZIPInputStream(new ByteArrayInputStream(response.getContentAsByteArray()))) {
+            Assertions.assertThat(new String(json.readAllBytes(), StandardCharsets.UTF_8))
+                    .isEqualTo(mapper.writeValueAsString(todos));
+        }
+    }
+
+    @Test
+    public void getAllTodos_WithWeakTagOfGzippedListing_ReturnsNotModified() throws Exception {
+        //Arrange
+        var todos = new ArrayList<TodoDto>();
+        for (long id = 1; id <= 100; id++)
+            todos.add(new TodoDto(id,"Go for a walk",LocalDate.now(),false,0L));
+        when(todoService.getAllTodos()).thenReturn(todos);
+        var gzipped = mockMvc.perform(get("/api/todos").header("Accept-Encoding", "gzip")).andReturn().getResponse();
+
+        //Act
+        var response = mockMvc.perform(get("/api/todos")
+                .header("Accept-Encoding", "gzip")
+                .header("If-None-Match", gzipped.getHeader("ETag")));
+
+        //Assert
+        response.andExpect(MockMvcResultMatchers.status().isNotModified());
+        response.andExpect(MockMvcResultMatchers.header().string("Vary", "Accept, Accept-Encoding"));
+    }
+
+    @Test
+    public void getAllTodos_SendsCborWhenAccepted() throws Exception {
+        //Arrange
+        var todoDto = new TodoDto(7L,"Play music",LocalDate.now(),true,0L);
+        when(todoService.getAllTodos()).thenReturn(List.of(todoDto));
+        var json = mockMvc.perform(get("/api/todos")).andReturn().getResponse();
+
+        //Act
+        var response = mockMvc.perform(get("/api/todos").accept(MediaType.APPLICATION_CBOR))
+                .andReturn()
+                .getResponse();
+
+        //Assert
+        Assertions.assertThat(response.getContentType()).isEqualTo(MediaType.APPLICATION_CBOR_VALUE);
+        Assertions.assertThat(response.getHeader("Vary")).isEqualTo("Accept, Accept-Encoding");
+        Assertions.assertThat(response.getHeader("ETag")).isNotEqualTo(json.getHeader("ETag"));
+        Assertions.assertThat(new CBORMapper().findAndRegisterModules().readValue(response.getContentAsByteArray(), TodoDto[].class))
+                .containsExactly(todoDto);
+        verify(todoService, times(2)).getAllTodos();
+    }
+
+    @Test
+    public void getAllTodos_WithUnsupportedAccept_ReturnsNotAcceptable() throws Exception {
+        //Act
+        var response = mockMvc.perform(get("/api/todos").accept(MediaType.APPLICATION_XML));
+
+        //Assert
+        response.andExpect(MockMvcResultMatchers.status().isNotAcceptable());
+        verify(todoService, never()).getAllTodos();
+    }
+
+    @Test
+    public void createTodo_WhileAtConcurrencyLimit_ReturnsServiceUnavailable() throws Exception {
+        //Arrange
+        var held = 0;
+        while (concurrencyLimiter.tryAcquire(AdaptiveConcurrencyLimiter.Priority.WRITE))
+            held++;
+
+        try {
+            //Act
+            var response = mockMvc.perform(post("/api/todos")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(mapper.writeValueAsString(new CreateTodoRequest("Go to parents meeting"))));
+
+            //Assert
+            response.andExpect(MockMvcResultMatchers.status().isServiceUnavailable());
+            response.andExpect(MockMvcResultMatchers.header().string("Retry-After", "1"));
+            response.andExpect(MockMvcResultMatchers.jsonPath("status", CoreMatchers.is(503)));
+            verify(todoService, never()).createTodo(any());
+        } finally {
+            for (var i = 0; i < held; i++)
+                concurrencyLimiter.release("held by the test", 0);
+        }
+    }
+
+    @Test
+    public void getAllTodos_ReturnsNotModifiedWithoutQueryingForCurrentETag() throws Exception {
+        //Arrange
+        when(todoGeneration.current()).thenReturn(42L);
+
+        //Act
+        var response = mockMvc.perform(get("/api/todos")
+                .queryParam("completed","false")
+                .header("If-None-Match", "\"b00t-42\""));
+
+        //Assert
+        response.andExpect(MockMvcResultMatchers.status().isNotModified());
+        response.andExpect(MockMvcResultMatchers.header().string("ETag", "\"b00t-42\""));
+        response.andExpect(MockMvcResultMatchers.content().string(""));
+        verifyNoInteractions(todoService);
+    }
+
     @Test
     public void getAllTodos_ReturnsFilteredTodoDtoList() throws Exception {
         //Arrange
@@ -91,12 +333,14 @@ public class TodoControllerUnitTests {
                 todo1.getId(),
                 todo1.getName(),
                 todo1.getCreatedAt(),
-                todo1.isCompleted());
+                todo1.isCompleted(),
+                0L);
         var todo2Dto = new TodoDto(
                 todo2.getId(),
                 todo2.getName(),
                 todo2.getCreatedAt(),
-                todo2.isCompleted());
+                todo2.isCompleted(),
+                0L);
         when(todoService.getAllTodosByCompletedStatus(filterBy))
                 .thenReturn(List.of(todo1Dto,todo2Dto));
 
@@ -119,7 +363,7 @@ public class TodoControllerUnitTests {
         //Arrange
         Long id = 7L;
         var request = new UpdateTodoRequest(id,"Watch the sky fall",true);
-        var todoDto = new TodoDto(id,request.name(),LocalDate.now(),request.completed());
+        var todoDto = new TodoDto(id,request.name(),LocalDate.now(),request.completed(),0L);
         when(todoService.updateTodo(request))
                 .thenReturn(todoDto);
 
@@ -139,7 +383,7 @@ public class TodoControllerUnitTests {
     @Test
     public void getTodo_ReturnsTodoDto() throws Exception {
         //Arrange
-        var todoDto = new TodoDto(7L,"Play music",LocalDate.now(),true);
+        var todoDto = new TodoDto(7L,"Play music",LocalDate.now(),true,0L);
         when(todoService.getTodo(7L)).thenReturn(todoDto);
 
         //Act
@@ -149,9 +393,41 @@ public class TodoControllerUnitTests {
         response.andExpect(MockMvcResultMatchers.status().isOk());
         response.andExpect(MockMvcResultMatchers.jsonPath("id", CoreMatchers.is(7)));
         response.andExpect(MockMvcResultMatchers.jsonPath("name", CoreMatchers.is(todoDto.name())));
+        response.andExpect(MockMvcResultMatchers.header().string("ETag", "\"7-0\""));
         System.out.println(response.andReturn().getResponse().getContentAsString());
     }
 
+    @Test
+    public void getTodo_IncludingArchived_FallsBackToArchive() throws Exception {
+        //Arrange
+        var archivedTodoDto = new TodoDto(2L,"Pay the rent",LocalDate.now().minusYears(1),true,1L);
+        when(todoService.getTodoIncludingArchived(2L)).thenReturn(archivedTodoDto);
+
+        //Act
+        var response = mockMvc.perform(get("/api/todos/2").queryParam("includeArchived","true"));
+
+        //Assert
+        response.andExpect(MockMvcResultMatchers.status().isOk());
+        response.andExpect(MockMvcResultMatchers.jsonPath("name", CoreMatchers.is(archivedTodoDto.name())));
+        response.andExpect(MockMvcResultMatchers.header().string("ETag", "\"2-1\""));
+        verify(todoService, never()).getTodo(any());
+    }
+
+    @Test
+    public void getTodo_ReturnsNotModifiedForCurrentETag() throws Exception {
+        //Arrange
+        var todoDto = new TodoDto(7L,"Play music",LocalDate.now(),true,3L);
+        when(todoService.getTodo(7L)).thenReturn(todoDto);
+
+        //Act
+        var response = mockMvc.perform(get("/api/todos/7")
+                .header("If-None-Match", "\"7-3\""));
+
+        //Assert
+        response.andExpect(MockMvcResultMatchers.status().isNotModified());
+        response.andExpect(MockMvcResultMatchers.content().string(""));
+    }
+
     @Test
     public void deleteTodo_ReturnsVoid() throws Exception {
         //Arrange
@@ -164,4 +440,198 @@ public class TodoControllerUnitTests {
         response.andExpect(MockMvcResultMatchers.status().isNoContent());
         verify(todoService).deleteTodo(id);
     }
+
+    @Test
+    public void getTodosPage_ReturnsTodoPage() throws Exception {
+        //Arrange
+        var todoDto = new TodoDto(7L,"Play music",LocalDate.now(),false,0L);
+        when(todoService.getTodosPageByCompletedStatus(false, null, 1))
+                .thenReturn(new TodoPageDto(List.of(todoDto), "next"));
+
+        //Act
+        var response = mockMvc.perform(get("/api/todos/page")
+                .queryParam("completed","false")
+                .queryParam("limit","1"));
+
+        //Assert
+        response.andExpect(MockMvcResultMatchers.status().isOk());
+        response.andExpect(MockMvcResultMatchers.jsonPath("todos.size()", CoreMatchers.is(1)));
+        response.andExpect(MockMvcResultMatchers.jsonPath("nextCursor", CoreMatchers.is("next")));
+        verify(todoService, never()).getTodosPage(any(), anyInt());
+    }
+
+    @Test
+    public void searchTodos_ReturnsMatchingTodos() throws Exception {
+        //Arrange
+        var todoDto = new TodoDto(7L,"Play music",LocalDate.now(),false,0L);
+        when(todoService.searchTodos("music", 50)).thenReturn(List.of(todoDto));
+
+        //Act
+        var response = mockMvc.perform(get("/api/todos/search")
+                .queryParam("q","music"));
+
+        //Assert
+        response.andExpect(MockMvcResultMatchers.status().isOk());
+        response.andExpect(MockMvcResultMatchers.jsonPath("[0].id", CoreMatchers.is(7)));
+    }
+
+    @Test
+    public void searchTodos_RejectsShortQuery() throws Exception {
+        //Act
+        var response = mockMvc.perform(get("/api/todos/search")
+                .queryParam("q","mu"));
+
+        //Assert
+        response.andExpect(MockMvcResultMatchers.status().isBadRequest());
+        response.andExpect(MockMvcResultMatchers.jsonPath("message", CoreMatchers.is("q must be at least 3 chars")));
+        verifyNoInteractions(todoService);
+    }
+
+    @Test
+    public void getTodosPage_RejectsLimitAboveMaximum() throws Exception {
+        //Act
+        var response = mockMvc.perform(get("/api/todos/page")
+                .queryParam("limit","501"));
+
+        //Assert
+        response.andExpect(MockMvcResultMatchers.status().isBadRequest());
+        verifyNoInteractions(todoService);
+    }
+
+    @Test
+    public void exportTodos_StreamsNdjson() throws Exception {
+        //Arrange
+        var todoDto = new TodoDto(7L,"Play music",LocalDate.of(2025,7,22),true,0L);
+        var todoDto2 = new TodoDto(8L,"Go for a walk",LocalDate.of(2025,7,22),false,0L);
+        doAnswer(invocation -> {
+            Consumer<TodoDto> consumer = invocation.getArgument(0);
+            consumer.accept(todoDto);
+            consumer.accept(todoDto2);
+            return null;
+        }).when(todoService).exportTodos(any());
+
+        //Act
+        var result = mockMvc.perform(get("/api/todos/export"))
+                .andExpect(MockMvcResultMatchers.request().asyncStarted())
+                .andReturn();
+        var response = mockMvc.perform(asyncDispatch(result));
+
+        //Assert
+        response.andExpect(MockMvcResultMatchers.status().isOk());
+        response.andExpect(MockMvcResultMatchers.content().contentType("application/x-ndjson"));
+        var lines = response.andReturn().getResponse().getContentAsString().split("\n");
+        Assertions.assertThat(lines).hasSize(2);
+        Assertions.assertThat(mapper.readValue(lines[0], TodoDto.class)).isEqualTo(todoDto);
+        Assertions.assertThat(mapper.readValue(lines[1], TodoDto.class)).isEqualTo(todoDto2);
+    }
+
+    @Test
+    public void toggleCompletedStatus_Bulk_ReturnsUpdatedCountAndMissingIds() throws Exception {
+        //Arrange
+        var request = new BulkCompleteTodosRequest(List.of(1L,2L,3L), true);
+        when(todoService.toggleCompletedStatus(request))
+                .thenReturn(new BulkCompleteTodosResponse(2, List.of(3L)));
+
+        //Act
+        var response = mockMvc.perform(patch("/api/todos/completed")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(mapper.writeValueAsString(request)));
+
+        //Assert
+        response.andExpect(MockMvcResultMatchers.status().isOk());
+        response.andExpect(MockMvcResultMatchers.jsonPath("updated", CoreMatchers.is(2)));
+        response.andExpect(MockMvcResultMatchers.jsonPath("missingIds[0]", CoreMatchers.is(3)));
+    }
+
+    @Test
+    public void toggleCompletedStatus_Bulk_RejectsMissingCompletedStatus() throws Exception {
+        //Act
+        var response = mockMvc.perform(patch("/api/todos/completed")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"ids\": [1, 2]}"));
+
+        //Assert
+        response.andExpect(MockMvcResultMatchers.status().isBadRequest());
+        verifyNoInteractions(todoService);
+    }
+
+    @Test
+    public void toggleCompletedStatus_Bulk_RejectsMissingIds() throws Exception {
+        //Act
+        var response = mockMvc.perform(patch("/api/todos/completed")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"completed\": true}"));
+
+        //Assert
+        response.andExpect(MockMvcResultMatchers.status().isBadRequest());
+        response.andExpect(MockMvcResultMatchers.jsonPath("message",
+                CoreMatchers.is("ids cannot be empty, set all to true to update every todo")));
+        verifyNoInteractions(todoService);
+    }
+
+    @Test
+    public void toggleCompletedStatus_Bulk_RejectsIdsTogetherWithAll() throws Exception {
+        //Act
+        var response = mockMvc.perform(patch("/api/todos/completed")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"ids\": [1], \"all\": true, \"completed\": true}"));
+
+        //Assert
+        response.andExpect(MockMvcResultMatchers.status().isBadRequest());
+        response.andExpect(MockMvcResultMatchers.jsonPath("message",
+                CoreMatchers.is("ids must be left out when all is true")));
+        verifyNoInteractions(todoService);
+    }
+
+    @Test
+    public void toggleCompletedStatus_Bulk_ForAll_ReturnsUpdatedCount() throws Exception {
+        //Arrange
+        when(todoService.toggleCompletedStatus(new BulkCompleteTodosRequest(null, true, false)))
+                .thenReturn(new BulkCompleteTodosResponse(5, List.of()));
+
+        //Act
+        var response = mockMvc.perform(patch("/api/todos/completed")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"all\": true, \"completed\": false}"));
+
+        //Assert
+        response.andExpect(MockMvcResultMatchers.status().isOk());
+        response.andExpect(MockMvcResultMatchers.jsonPath("updated", CoreMatchers.is(5)));
+    }
+
+    @Test
+    public void getStats_ReturnsTodoStatsDto() throws Exception {
+        //Arrange
+        var today = LocalDate.now();
+        when(todoStatsService.getStats()).thenReturn(new TodoStatsDto(3, 1, 2, Map.of(today, 3L)));
+
+        //Act
+        var response = mockMvc.perform(get("/api/todos/stats"));
+
+        //Assert
+        response.andExpect(MockMvcResultMatchers.status().isOk());
+        response.andExpect(MockMvcResultMatchers.jsonPath("total", CoreMatchers.is(3)));
+        response.andExpect(MockMvcResultMatchers.jsonPath("pending", CoreMatchers.is(2)));
+        response.andExpect(MockMvcResultMatchers.jsonPath("createdPerDay['%s']".formatted(today), CoreMatchers.is(3)));
+    }
+
+    @Test
+    public void getTodoEvents_StreamsChangesAsServerSentEvents() throws Exception {
+        //Arrange
+        var emitter = new SseEmitter();
+        when(todoChangeFeed.subscribe()).thenReturn(emitter);
+
+        //Act
+        var result = mockMvc.perform(get("/api/todos/events").accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(MockMvcResultMatchers.request().asyncStarted())
+                .andReturn();
+        emitter.send(SseEmitter.event().name("created").data("{\"id\":1}"));
+        emitter.complete();
+        var response = mockMvc.perform(asyncDispatch(result));
+
+        //Assert
+        response.andExpect(MockMvcResultMatchers.status().isOk());
+        response.andExpect(MockMvcResultMatchers.content().contentTypeCompatibleWith(MediaType.TEXT_EVENT_STREAM));
+        response.andExpect(MockMvcResultMatchers.content().string("event:created\ndata:{\"id\":1}\n\n"));
+    }
 }
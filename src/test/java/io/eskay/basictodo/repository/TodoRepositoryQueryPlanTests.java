@@ -0,0 +1,309 @@
+package io.eskay.basictodo.repository;
+
+import io.eskay.basictodo.support.SqlStatementCounter;
+import jakarta.persistence.EntityManager;
+import org.assertj.core.api.Assertions;
+import org.hibernate.Session;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.jdbc.EmbeddedDatabaseConnection;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Limit;
+
+import java.lang.reflect.Method;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+/*
+ * Runs every query of the todo, archive and outbox repositories against seeded tables and checks H2's plan for it,
+ * so a query or index change that falls back to a full table scan fails the build.
+ */
+@DataJpaTest(properties = SqlStatementCounter.STATEMENT_INSPECTOR_PROPERTY)
+@AutoConfigureTestDatabase(connection = EmbeddedDatabaseConnection.H2)
+public class TodoRepositoryQueryPlanTests {
+
+    private static final int SEEDED_TODOS = 50_000;
+    private static final int SEEDED_ARCHIVED_TODOS = 10_000;
+    private static final int SEEDED_OUTBOX_ENTRIES = 10_000;
+
+    // these read or touch (nearly) every row by design, a scan is the right plan for them. Name searches only
+    // go to the table while the in-memory name index loads
+    private static final Set<String> FULL_SCAN_METHODS = Set.of(
+            "findAll", "findAllTodoDtos", "streamAllTodos", "updateCompletedForAll", "findAllByNameContainingIgnoreCaseOrderByIdAsc");
+
+    private static final Set<String> CHECKED_METHODS = Set.of(
+            "findById",
+            "findTodoDtoById",
+            "findAllByCompleted",
+            "findAllTodoDtosByCompleted",
+            "findAllByOrderByCreatedAtAscIdAsc",
+            "findAllAfter",
+            "findAllByCompletedOrderByCreatedAtAscIdAsc",
+            "findAllByCompletedAfter",
+            "updateCompletedByIdIn",
+            "updateCompletedAndVersionByIdIn",
+            "findIdsByIdIn",
+            "findAllByIdInOrderByIdAsc",
+            "countByCompleted",
+            "countCreatedPerDaySince",
+            "lockCompletedIdsCreatedBefore",
+            "deleteAllByIdIn",
+            "updateTodo",
+            "deleteTodo");
+
+    private static final Set<String> ARCHIVE_FULL_SCAN_METHODS = Set.of("findAllTodoDtos", "streamAllTodos");
+
+    private static final Set<String> ARCHIVE_CHECKED_METHODS = Set.of(
+            "insertFromTodos",
+            "lockIdsByIdIn",
+            "restoreTodos",
+            "deleteAllByIdIn",
+            "findTodoDtoById",
+            "countCreatedPerDaySince");
+
+    private static final Set<String> OUTBOX_CHECKED_METHODS = Set.of(
+            "insertForTodo",
+            "insertForTodos",
+            "findCreatedSince",
+            "findNewestCreatedAt",
+            "deleteCreatedBefore");
+
+    @Autowired
+    private TodoRepository todoRepository;
+
+    @Autowired
+    private TodoArchiveRepository archiveRepository;
+
+    @Autowired
+    private TodoOutboxRepository outboxRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @BeforeEach
+    public void seedTodos() {
+        entityManager.createNativeQuery("""
+                        insert into basic_todo (id, name, created_at, completed)
+                        select x, 'Todo number ' || x, dateadd('DAY', -mod(x, 365), current_date), mod(x, 5) = 0
+                        from system_range(1, %d)""".formatted(SEEDED_TODOS))
+                .executeUpdate();
+        entityManager.createNativeQuery("""
+                        insert into basic_todo_archive (id, name, created_at, version)
+                        select %1$d + x, 'Archived todo number ' || x, dateadd('DAY', -365 - mod(x, 365), current_date), 1
+                        from system_range(1, %2$d)""".formatted(SEEDED_TODOS, SEEDED_ARCHIVED_TODOS))
+                .executeUpdate();
+        entityManager.createNativeQuery("""
+                        insert into todo_outbox (todo_id, node_id, created_at)
+                        select x, 'seeding-node', dateadd('SECOND', -x, current_timestamp)
+                        from system_range(1, %d)""".formatted(SEEDED_OUTBOX_ENTRIES))
+                .executeUpdate();
+        SqlStatementCounter.reset();
+    }
+
+    @Test
+    public void everyRepositoryQuery_IsCovered() {
+        var uncheckedMethods = new ArrayList<String>();
+        uncheckedMethods.addAll(uncheckedMethods(CHECKED_METHODS, FULL_SCAN_METHODS,
+                TodoRepository.class, TodoRepositoryCustom.class));
+        uncheckedMethods.addAll(uncheckedMethods(ARCHIVE_CHECKED_METHODS, ARCHIVE_FULL_SCAN_METHODS,
+                TodoArchiveRepository.class));
+        uncheckedMethods.addAll(uncheckedMethods(OUTBOX_CHECKED_METHODS, Set.of(),
+                TodoOutboxRepository.class));
+
+        Assertions.assertThat(uncheckedMethods)
+                .as("add a plan check for new repository methods")
+                .isEmpty();
+    }
+
+    @Test
+    public void findById_UsesIndex() {
+        assertUsesIndexes(() -> todoRepository.findById(42L));
+    }
+
+    @Test
+    public void findTodoDtoById_UsesIndex() {
+        assertUsesIndexes(() -> todoRepository.findTodoDtoById(42L));
+    }
+
+    @Test
+    public void findAllByCompleted_UsesIndex() {
+        assertUsesIndexes(() -> todoRepository.findAllByCompleted(true));
+    }
+
+    @Test
+    public void findAllTodoDtosByCompleted_UsesIndex() {
+        assertUsesIndexes(() -> todoRepository.findAllTodoDtosByCompleted(true));
+    }
+
+    @Test
+    public void findAllByOrderByCreatedAtAscIdAsc_UsesIndex() {
+        assertUsesIndexes(() -> todoRepository.findAllByOrderByCreatedAtAscIdAsc(Limit.of(50)));
+    }
+
+    @Test
+    public void findAllAfter_UsesIndex() {
+        assertUsesIndexes(() -> todoRepository.findAllAfter(LocalDate.now().minusDays(100), 1_000L, Limit.of(50)));
+    }
+
+    @Test
+    public void findAllByCompletedOrderByCreatedAtAscIdAsc_UsesIndex() {
+        assertUsesIndexes(() -> todoRepository.findAllByCompletedOrderByCreatedAtAscIdAsc(false, Limit.of(50)));
+    }
+
+    @Test
+    public void findAllByCompletedAfter_UsesIndex() {
+        assertUsesIndexes(() -> todoRepository.findAllByCompletedAfter(
+                false, LocalDate.now().minusDays(100), 1_000L, Limit.of(50)));
+    }
+
+    @Test
+    public void updateCompletedByIdIn_UsesIndex() {
+        assertUsesIndexes(() -> todoRepository.updateCompletedByIdIn(List.of(1L, 2L, 3L), true));
+    }
+
+    @Test
+    public void updateCompletedAndVersionByIdIn_UsesIndex() {
+        assertUsesIndexes(() -> todoRepository.updateCompletedAndVersionByIdIn(List.of(1L, 2L, 3L), true, 2));
+    }
+
+    @Test
+    public void findIdsByIdIn_UsesIndex() {
+        assertUsesIndexes(() -> todoRepository.findIdsByIdIn(List.of(1L, 2L, 3L)));
+    }
+
+    @Test
+    public void findAllByIdInOrderByIdAsc_UsesIndex() {
+        assertUsesIndexes(() -> todoRepository.findAllByIdInOrderByIdAsc(List.of(1L, 2L, 3L)));
+    }
+
+    @Test
+    public void countByCompleted_UsesIndex() {
+        assertUsesIndexes(() -> todoRepository.countByCompleted(true));
+    }
+
+    @Test
+    public void countCreatedPerDaySince_UsesIndex() {
+        assertUsesIndexes(() -> todoRepository.countCreatedPerDaySince(LocalDate.now().minusDays(29)));
+    }
+
+    @Test
+    public void lockCompletedIdsCreatedBefore_UsesIndex() {
+        assertUsesIndexes(() -> todoRepository.lockCompletedIdsCreatedBefore(LocalDate.now().minusDays(90), Limit.of(500)));
+    }
+
+    @Test
+    public void deleteAllByIdIn_UsesIndex() {
+        assertUsesIndexes(() -> todoRepository.deleteAllByIdIn(List.of(1L, 2L, 3L)));
+    }
+
+    @Test
+    public void updateTodo_UsesIndex() {
+        assertUsesIndexes(() -> todoRepository.updateTodo(42L, "Renamed todo", true));
+    }
+
+    @Test
+    public void deleteTodo_UsesIndex() {
+        assertUsesIndexes(() -> todoRepository.deleteTodo(42L));
+    }
+
+    @Test
+    public void archive_insertFromTodos_UsesIndex() {
+        assertUsesIndexes(() -> archiveRepository.insertFromTodos(List.of(5L, 10L, 15L)));
+    }
+
+    @Test
+    public void archive_lockIdsByIdIn_UsesIndex() {
+        assertUsesIndexes(() -> archiveRepository.lockIdsByIdIn(List.of(50_001L, 50_002L, 50_003L)));
+    }
+
+    @Test
+    public void archive_restoreTodos_UsesIndex() {
+        assertUsesIndexes(() -> archiveRepository.restoreTodos(List.of(50_001L, 50_002L, 50_003L)));
+    }
+
+    @Test
+    public void archive_deleteAllByIdIn_UsesIndex() {
+        assertUsesIndexes(() -> archiveRepository.deleteAllByIdIn(List.of(50_001L, 50_002L, 50_003L)));
+    }
+
+    @Test
+    public void archive_findTodoDtoById_UsesIndex() {
+        assertUsesIndexes(() -> archiveRepository.findTodoDtoById(50_042L));
+    }
+
+    @Test
+    public void archive_countCreatedPerDaySince_UsesIndex() {
+        assertUsesIndexes(() -> archiveRepository.countCreatedPerDaySince(LocalDate.now().minusDays(29)));
+    }
+
+    @Test
+    public void outbox_insertForTodo_ReadsNoTable() {
+        assertUsesIndexes(() -> outboxRepository.insertForTodo(42L, "node"));
+    }
+
+    @Test
+    public void outbox_insertForTodos_UsesIndex() {
+        assertUsesIndexes(() -> outboxRepository.insertForTodos(List.of(1L, 2L, 3L), "node"));
+    }
+
+    @Test
+    public void outbox_findCreatedSince_UsesIndex() {
+        assertUsesIndexes(() -> outboxRepository.findCreatedSince(Instant.now().minusSeconds(10)));
+    }
+
+    @Test
+    public void outbox_findNewestCreatedAt_UsesIndex() {
+        assertUsesIndexes(() -> outboxRepository.findNewestCreatedAt());
+    }
+
+    @Test
+    public void outbox_deleteCreatedBefore_UsesIndex() {
+        assertUsesIndexes(() -> outboxRepository.deleteCreatedBefore(Instant.now().minusSeconds(9_990)));
+    }
+
+    private static List<String> uncheckedMethods(Set<String> checkedMethods, Set<String> fullScanMethods,
+                                                 Class<?>... repositories) {
+        return Arrays.stream(repositories)
+                .flatMap(repository -> Arrays.stream(repository.getDeclaredMethods())
+                        // default methods only call the queries checked here
+                        .filter(method -> !method.isDefault())
+                        .map(Method::getName)
+                        .filter(name -> !checkedMethods.contains(name) && !fullScanMethods.contains(name))
+                        .map(name -> repository.getSimpleName() + "." + name))
+                .distinct()
+                .toList();
+    }
+
+    private void assertUsesIndexes(Runnable repositoryCall) {
+        repositoryCall.run();
+        var statements = SqlStatementCounter.statements();
+
+        Assertions.assertThat(statements).isNotEmpty();
+        for (var statement : statements) {
+            Assertions.assertThat(explain(statement))
+                    .as("plan of %s", statement)
+                    .doesNotContainIgnoringCase("tableScan");
+        }
+    }
+
+    private String explain(String sql) {
+        return entityManager.unwrap(Session.class).doReturningWork(connection -> {
+            try (var statement = connection.createStatement();
+                 var plan = statement.executeQuery("explain " + sql)) {
+                var result = new StringBuilder();
+                while (plan.next())
+                    result.append(plan.getString(1)).append('\n');
+                return result.toString();
+            } catch (SQLException e) {
+                throw new IllegalStateException("could not explain " + sql, e);
+            }
+        });
+    }
+}
@@ -1,23 +1,40 @@
 package io.eskay.basictodo.repository;
 
+import io.eskay.basictodo.dto.response.TodoDto;
 import io.eskay.basictodo.entity.Todo;
+import io.eskay.basictodo.support.SqlStatementCounter;
+import io.eskay.basictodo.support.SqlStatementCounter.SqlStatementCounts;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
 import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.jdbc.EmbeddedDatabaseConnection;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Limit;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDate;
 import java.util.List;
+import java.util.stream.IntStream;
 
-@DataJpaTest
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        SqlStatementCounter.STATEMENT_INSPECTOR_PROPERTY})
 @AutoConfigureTestDatabase(connection = EmbeddedDatabaseConnection.H2)
 public class TodoRepositoryUnitTests {
 
     @Autowired
     private TodoRepository todoRepository;
 
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private EntityManager entityManager;
+
 
     @Test
     public void save_ReturnsSavedTodo() {
@@ -145,4 +162,265 @@ public class TodoRepositoryUnitTests {
         Assertions.assertThat(todoListBeforeDelete.size()).isEqualTo(1);
         Assertions.assertThat(todoListAfterDelete.isEmpty()).isTrue();
     }
+
+    @Test
+    public void findAllByOrderByCreatedAtAscIdAsc_ReturnsFirstPage() {
+        //Arrange
+        var todo1 = Todo.builder().name("Play games").build();
+        var todo2 = Todo.builder().name("Read a book").build();
+        var todo3 = Todo.builder().name("Go for swimming").build();
+        todoRepository.saveAll(List.of(todo1,todo2,todo3));
+
+        //Act
+        var todoList = todoRepository.findAllByOrderByCreatedAtAscIdAsc(Limit.of(2));
+
+        //Assert
+        Assertions.assertThat(todoList).containsExactly(todo1,todo2);
+    }
+
+    @Test
+    public void findAllAfter_ReturnsTodosAfterCursor() {
+        //Arrange
+        var todo1 = Todo.builder().name("Play games").build();
+        var todo2 = Todo.builder().name("Read a book").build();
+        var todo3 = Todo.builder().name("Go for swimming").build();
+        todoRepository.saveAllAndFlush(List.of(todo1,todo2,todo3));
+
+        //Act
+        var todoList = todoRepository.findAllAfter(todo1.getCreatedAt(), todo1.getId(), Limit.of(5));
+
+        //Assert
+        Assertions.assertThat(todoList).containsExactly(todo2,todo3);
+    }
+
+    @Test
+    public void findAllByCompletedAfter_ReturnsFilteredTodosAfterCursor() {
+        //Arrange
+        boolean filterBy = false;
+        var todo1 = Todo.builder().name("Go out for a walk").completed(false).build();
+        var todo2 = Todo.builder().name("Read a book").completed(true).build();
+        var todo3 = Todo.builder().name("Go for swimming").completed(false).build();
+        var todo4 = Todo.builder().name("Play games").completed(false).build();
+        todoRepository.saveAll(List.of(todo1,todo2,todo3,todo4));
+
+        //Act
+        var firstPage = todoRepository.findAllByCompletedOrderByCreatedAtAscIdAsc(filterBy, Limit.of(1));
+        var nextPage = todoRepository.findAllByCompletedAfter(
+                filterBy, todo1.getCreatedAt(), todo1.getId(), Limit.of(5));
+
+        //Assert
+        Assertions.assertThat(firstPage).containsExactly(todo1);
+        Assertions.assertThat(nextPage).containsExactly(todo3,todo4);
+    }
+
+    @Test
+    public void streamAllTodos_ReturnsAllTodoDtosInIdOrder() {
+        //Arrange
+        var todo1 = Todo.builder().name("Play games").build();
+        var todo2 = Todo.builder().name("Read a book").completed(true).build();
+        todoRepository.saveAll(List.of(todo1,todo2));
+
+        //Act
+        List<TodoDto> todoList;
+        try (var todos = todoRepository.streamAllTodos()) {
+            todoList = todos.toList();
+        }
+
+        //Assert
+        Assertions.assertThat(todoList).extracting(TodoDto::id).containsExactly(todo1.getId(),todo2.getId());
+        Assertions.assertThat(todoList.get(1).completed()).isTrue();
+    }
+
+    @Test
+    public void saveAll_BatchesInserts() {
+        //Arrange
+        var todos = IntStream.range(0, 120)
+                .mapToObj(i -> Todo.builder().name("Batched todo " + i).build())
+                .toList();
+        var statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        //Act
+        todoRepository.saveAll(todos);
+        todoRepository.flush();
+
+        //Assert
+        //at most 4 sequence calls for 3 blocks of 50 ids and one insert statement re-used for every batch of 50,
+        //without batching every todo would prepare its own insert
+        Assertions.assertThat(statistics.getEntityInsertCount()).isEqualTo(120);
+        Assertions.assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(5);
+    }
+
+    @Test
+    public void updateCompletedByIdIn_ReturnsChangedCount() {
+        //Arrange
+        var todo1 = Todo.builder().name("Go out for a walk").completed(false).build();
+        var todo2 = Todo.builder().name("Read a book").completed(false).build();
+        var todo3 = Todo.builder().name("Go for swimming").completed(false).build();
+        var todo4 = Todo.builder().name("Water the plants").completed(true).build();
+        todoRepository.saveAllAndFlush(List.of(todo1,todo2,todo3,todo4));
+        SqlStatementCounter.reset();
+
+        //Act
+        var updated = todoRepository.updateCompletedByIdIn(List.of(todo1.getId(),todo3.getId(),todo4.getId(),-1L), true);
+        var statements = SqlStatementCounter.counts();
+        entityManager.clear();
+        var completedTodos = todoRepository.findAllByCompleted(true);
+
+        //Assert
+        Assertions.assertThat(updated).isEqualTo(2);
+        Assertions.assertThat(completedTodos).extracting(Todo::getId, Todo::getVersion)
+                .containsExactlyInAnyOrder(
+                        Assertions.tuple(todo1.getId(), 1L),
+                        Assertions.tuple(todo3.getId(), 1L),
+                        Assertions.tuple(todo4.getId(), 0L));
+        Assertions.assertThat(statements).isEqualTo(SqlStatementCounts.updates(1));
+    }
+
+    @Test
+    public void updateCompletedForAll_OnlyUpdatesTodosInOtherState() {
+        //Arrange
+        var todo1 = Todo.builder().name("Go out for a walk").completed(true).build();
+        var todo2 = Todo.builder().name("Read a book").completed(false).build();
+        todoRepository.saveAllAndFlush(List.of(todo1,todo2));
+
+        //Act
+        var updated = todoRepository.updateCompletedForAll(true);
+
+        //Assert
+        Assertions.assertThat(updated).isEqualTo(1);
+        Assertions.assertThat(todoRepository.findAllByCompleted(false)).isEmpty();
+    }
+
+    @Test
+    public void updateCompletedAndVersionByIdIn_AddsWritesToVersion() {
+        //Arrange
+        var todo1 = Todo.builder().name("Go out for a walk").completed(false).build();
+        var todo2 = Todo.builder().name("Read a book").completed(false).build();
+        todoRepository.saveAllAndFlush(List.of(todo1,todo2));
+        SqlStatementCounter.reset();
+
+        //Act
+        var updated = todoRepository.updateCompletedAndVersionByIdIn(List.of(todo1.getId(),-1L), true, 3);
+        var statements = SqlStatementCounter.counts();
+        entityManager.clear();
+
+        //Assert
+        Assertions.assertThat(updated).isEqualTo(1);
+        Assertions.assertThat(statements).isEqualTo(SqlStatementCounts.updates(1));
+        var updatedTodo = todoRepository.findById(todo1.getId()).orElseThrow();
+        Assertions.assertThat(updatedTodo.isCompleted()).isTrue();
+        Assertions.assertThat(updatedTodo.getVersion()).isEqualTo(3L);
+        Assertions.assertThat(todoRepository.findById(todo2.getId()).orElseThrow().isCompleted()).isFalse();
+    }
+
+    @Test
+    public void findIdsByIdIn_ReturnsExistingIds() {
+        //Arrange
+        var todo = Todo.builder().name("Play football").build();
+        todoRepository.saveAndFlush(todo);
+
+        //Act
+        var ids = todoRepository.findIdsByIdIn(List.of(todo.getId(),-1L));
+
+        //Assert
+        Assertions.assertThat(ids).containsExactly(todo.getId());
+    }
+
+    @Test
+    public void updateTodo_ReturnsPreviousAndUpdatedTodoDto() {
+        //Arrange
+        var todo = Todo.builder().name("Listen to music").completed(false).build();
+        todoRepository.saveAndFlush(todo);
+        SqlStatementCounter.reset();
+
+        //Act
+        var update = todoRepository.updateTodo(todo.getId(), "Listen to pop music", true);
+
+        //Assert
+        Assertions.assertThat(SqlStatementCounter.counts()).isEqualTo(SqlStatementCounts.updates(1));
+        Assertions.assertThat(update).contains(new TodoUpdate(
+                new TodoDto(todo.getId(), "Listen to music", todo.getCreatedAt(), false, 0L),
+                new TodoDto(todo.getId(), "Listen to pop music", todo.getCreatedAt(), true, 1L)));
+    }
+
+    @Test
+    public void updateTodo_KeepsValuesPassedAsNull() {
+        //Arrange
+        var todo = Todo.builder().name("Listen to music").completed(true).build();
+        todoRepository.saveAndFlush(todo);
+
+        //Act
+        var renamedTodo = todoRepository.updateTodo(todo.getId(), "Listen to pop music", null);
+        var completedTodo = todoRepository.updateTodo(todo.getId(), null, false);
+
+        //Assert
+        Assertions.assertThat(renamedTodo.orElseThrow().current().completed()).isTrue();
+        Assertions.assertThat(completedTodo.orElseThrow().previous().completed()).isTrue();
+        Assertions.assertThat(completedTodo.orElseThrow().current().name()).isEqualTo("Listen to pop music");
+        Assertions.assertThat(completedTodo.orElseThrow().current().completed()).isFalse();
+    }
+
+    @Test
+    public void updateTodo_ReturnsEmptyForUnknownId() {
+        //Act
+        var updatedTodo = todoRepository.updateTodo(-1L, "Listen to pop music", true);
+
+        //Assert
+        Assertions.assertThat(updatedTodo).isEmpty();
+    }
+
+    @Test
+    public void deleteTodo_ReturnsDeletedTodoDto() {
+        //Arrange
+        var todo = Todo.builder().name("Play football").build();
+        todoRepository.saveAndFlush(todo);
+        SqlStatementCounter.reset();
+
+        //Act
+        var deleted = todoRepository.deleteTodo(todo.getId());
+        var deletedAgain = todoRepository.deleteTodo(todo.getId());
+
+        //Assert
+        Assertions.assertThat(SqlStatementCounter.counts()).isEqualTo(SqlStatementCounts.deletes(2));
+        Assertions.assertThat(deleted).contains(
+                new TodoDto(todo.getId(), "Play football", todo.getCreatedAt(), false, 0L));
+        Assertions.assertThat(deletedAgain).isEmpty();
+        Assertions.assertThat(todoRepository.findAll()).isEmpty();
+    }
+
+    @Test
+    public void countByCompleted_ReturnsCount() {
+        //Arrange
+        todoRepository.saveAll(List.of(
+                Todo.builder().name("Play football").completed(true).build(),
+                Todo.builder().name("Listen to music").completed(false).build(),
+                Todo.builder().name("Go for a walk").completed(true).build()));
+
+        //Act
+        var completed = todoRepository.countByCompleted(true);
+
+        //Assert
+        Assertions.assertThat(completed).isEqualTo(2);
+    }
+
+    @Test
+    public void countCreatedPerDaySince_GroupsByCreationDay() {
+        //Arrange
+        var today = LocalDate.now();
+        var todos = todoRepository.saveAllAndFlush(List.of(
+                Todo.builder().name("Play football").build(),
+                Todo.builder().name("Listen to music").build(),
+                Todo.builder().name("Go for a walk").build()));
+        entityManager.createQuery("update Todo t set t.createdAt = :createdAt where t.id = :id")
+                .setParameter("createdAt", today.minusDays(40))
+                .setParameter("id", todos.get(2).getId())
+                .executeUpdate();
+
+        //Act
+        var counts = todoRepository.countCreatedPerDaySince(today.minusDays(29));
+
+        //Assert
+        Assertions.assertThat(counts).containsExactly(new TodoDailyCount(today, 2L));
+    }
 }
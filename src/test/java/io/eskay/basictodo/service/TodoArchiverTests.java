@@ -0,0 +1,134 @@
+package io.eskay.basictodo.service;
+
+import io.eskay.basictodo.config.CacheConfig;
+import io.eskay.basictodo.entity.Todo;
+import io.eskay.basictodo.entity.TodoOutboxEntry;
+import io.eskay.basictodo.event.TodosArchivedEvent;
+import io.eskay.basictodo.repository.TodoArchiveRepository;
+import io.eskay.basictodo.repository.TodoOutboxRepository;
+import io.eskay.basictodo.repository.TodoRepository;
+import jakarta.persistence.EntityManager;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.jdbc.EmbeddedDatabaseConnection;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import static org.mockito.Mockito.when;
+
+@DataJpaTest(properties = {
+        "todo.archive.enabled=true",
+        "todo.archive.min-age=P30D",
+        "todo.archive.chunk-size=2"})
+@AutoConfigureTestDatabase(connection = EmbeddedDatabaseConnection.H2)
+@Import({TodoArchiver.class, TodoOutbox.class, TodoArchiverTests.CacheTestConfig.class})
+@RecordApplicationEvents
+public class TodoArchiverTests {
+
+    @Autowired
+    private TodoArchiver archiver;
+
+    @Autowired
+    private TodoRepository todoRepository;
+
+    @Autowired
+    private TodoArchiveRepository archiveRepository;
+
+    @Autowired
+    private TodoOutboxRepository outboxRepository;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private ApplicationEvents events;
+
+    @MockitoBean
+    private TodoCompletionBuffer completionBuffer;
+
+    @TestConfiguration
+    static class CacheTestConfig {
+
+        @Bean
+        public CacheManager cacheManager() {
+            return new ConcurrentMapCacheManager(CacheConfig.TODOS_CACHE);
+        }
+    }
+
+    @BeforeEach
+    public void seedTodos() {
+        // 1 to 3 are old and completed, 4 is old but pending and 5 completed but recent
+        entityManager.createNativeQuery("""
+                        insert into basic_todo (id, name, created_at, completed, version) values
+                            (1, 'Pay the rent', dateadd('DAY', -90, current_date), true, 3),
+                            (2, 'Renew my passport', dateadd('DAY', -60, current_date), true, 1),
+                            (3, 'Book the flights', dateadd('DAY', -45, current_date), true, 2),
+                            (4, 'Fix the bike', dateadd('DAY', -90, current_date), false, 0),
+                            (5, 'Buy groceries', dateadd('DAY', -1, current_date), true, 1)""")
+                .executeUpdate();
+    }
+
+    @Test
+    public void archive_MovesOldCompletedTodosInChunks() {
+        //Arrange
+        var cache = cacheManager.getCache(CacheConfig.TODOS_CACHE);
+        cache.put(1L, "cached");
+        cache.put(5L, "cached");
+
+        //Act
+        archiver.archive();
+
+        //Assert
+        Assertions.assertThat(todoRepository.findAll())
+                .extracting(Todo::getId)
+                .containsExactlyInAnyOrder(4L, 5L);
+        Assertions.assertThat(archiveRepository.findTodoDtoById(1L))
+                .hasValueSatisfying(todo -> {
+                    Assertions.assertThat(todo.name()).isEqualTo("Pay the rent");
+                    Assertions.assertThat(todo.completed()).isTrue();
+                    Assertions.assertThat(todo.version()).isEqualTo(3L);
+                });
+        Assertions.assertThat(archiveRepository.count()).isEqualTo(3);
+        Assertions.assertThat(outboxRepository.findCreatedSince(Instant.EPOCH))
+                .extracting(TodoOutboxEntry::getTodoId)
+                .containsExactlyInAnyOrder(1L, 2L, 3L);
+        Assertions.assertThat(cache.get(1L)).isNull();
+        Assertions.assertThat(cache.get(5L)).isNotNull();
+        // oldest first, two per chunk
+        Assertions.assertThat(events.stream(TodosArchivedEvent.class))
+                .extracting(TodosArchivedEvent::ids)
+                .containsExactly(List.of(1L, 2L), List.of(3L));
+    }
+
+    @Test
+    public void archive_LeavesTodosWithBufferedChangesForNextRun() {
+        //Arrange
+        when(completionBuffer.pending(2L))
+                .thenReturn(Optional.of(new TodoCompletionBuffer.PendingCompletion(null, 1)));
+
+        //Act
+        archiver.archive();
+
+        //Assert
+        Assertions.assertThat(todoRepository.findById(2L)).isPresent();
+        Assertions.assertThat(archiveRepository.findTodoDtoById(2L)).isEmpty();
+        Assertions.assertThat(archiveRepository.count()).isEqualTo(2);
+    }
+}
@@ -0,0 +1,85 @@
+package io.eskay.basictodo.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.eskay.basictodo.dto.response.TodoDto;
+import io.eskay.basictodo.event.TodoChangedEvent;
+import io.eskay.basictodo.event.TodosBulkUpdatedEvent;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+public class TodoChangeFeedUnitTests {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    @Test
+    public void subscribe_AddsSubscriber() {
+        //Arrange
+        var todoChangeFeed = new TodoChangeFeed(objectMapper, Runnable::run, 8, Duration.ofMinutes(1));
+
+        //Act
+        todoChangeFeed.subscribe();
+        todoChangeFeed.subscribe();
+
+        //Assert
+        Assertions.assertThat(todoChangeFeed.subscriberCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void onTodoChanged_KeepsSubscribersThatKeepUp() {
+        //Arrange
+        var todoChangeFeed = new TodoChangeFeed(objectMapper, Runnable::run, 2, Duration.ofMinutes(1));
+        todoChangeFeed.subscribe();
+
+        //Act
+        for (var i = 0; i < 10; i++)
+            todoChangeFeed.onTodoChanged(createdEvent(i));
+        todoChangeFeed.onTodosBulkUpdated(new TodosBulkUpdatedEvent(List.of(1L, 2L), true, 2));
+
+        //Assert
+        Assertions.assertThat(todoChangeFeed.subscriberCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void onTodoChanged_DisconnectsSlowSubscriber() {
+        //Arrange
+        // sends are never run, as if the subscriber's connection was stuck
+        var sends = new ArrayList<Runnable>();
+        var todoChangeFeed = new TodoChangeFeed(objectMapper, sends::add, 2, Duration.ofMinutes(1));
+        todoChangeFeed.subscribe();
+
+        //Act
+        todoChangeFeed.onTodoChanged(createdEvent(1));
+        var subscribersWithFullQueue = todoChangeFeed.subscriberCount();
+        todoChangeFeed.onTodoChanged(createdEvent(2));
+
+        //Assert
+        Assertions.assertThat(subscribersWithFullQueue).isEqualTo(1);
+        Assertions.assertThat(todoChangeFeed.subscriberCount()).isZero();
+        // one drain of the queue, and completing the evicted subscriber's stream
+        Assertions.assertThat(sends).hasSize(2);
+    }
+
+    @Test
+    public void heartbeat_DisconnectsSlowSubscriber() {
+        //Arrange
+        var sends = new ArrayList<Runnable>();
+        var todoChangeFeed = new TodoChangeFeed(objectMapper, sends::add, 1, Duration.ofMinutes(1));
+        todoChangeFeed.subscribe();
+
+        //Act
+        todoChangeFeed.heartbeat();
+
+        //Assert
+        Assertions.assertThat(todoChangeFeed.subscriberCount()).isZero();
+    }
+
+    private static TodoChangedEvent createdEvent(long id) {
+        var todoDto = new TodoDto(id, "Go for a walk", LocalDate.now(), false, 0L);
+        return new TodoChangedEvent(TodoChangedEvent.Type.CREATED, null, todoDto);
+    }
+}
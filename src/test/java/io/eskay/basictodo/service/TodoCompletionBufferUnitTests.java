@@ -0,0 +1,242 @@
+package io.eskay.basictodo.service;
+
+import io.eskay.basictodo.dto.response.TodoDto;
+import io.eskay.basictodo.repository.TodoArchiveRepository;
+import io.eskay.basictodo.repository.TodoRepository;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.transaction.support.TransactionOperations;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class TodoCompletionBufferUnitTests {
+
+    @Mock
+    private TodoRepository todoRepository;
+
+    @Mock
+    private TodoArchiveRepository archiveRepository;
+
+    @Mock
+    private TodoOutbox outbox;
+
+    @Mock
+    private TaskScheduler taskScheduler;
+
+    @Test
+    public void buffer_CoalescesTogglesOfTheSameTodo() {
+        //Arrange
+        var completionBuffer = new TodoCompletionBuffer(todoRepository, archiveRepository, outbox, TransactionOperations.withoutTransaction(), taskScheduler, true, 100, 500);
+        var todoDto = todoDto(1L, false);
+        updatesEveryId();
+
+        //Act
+        completionBuffer.buffer(todoDto, true);
+        completionBuffer.buffer(todoDto, false);
+        var bufferedTodo = completionBuffer.buffer(todoDto, true);
+        completionBuffer.flush();
+
+        //Assert
+        Assertions.assertThat(bufferedTodo).isEqualTo(new TodoDto(1L, "Go for a walk", todoDto.created_at(), true, 3L));
+        verify(todoRepository).updateCompletedAndVersionByIdIn(idsOf(1L), eq(true), eq(3L));
+        verify(outbox).recordChanged(idsOf(1L));
+        verifyNoMoreInteractions(todoRepository);
+        Assertions.assertThat(completionBuffer.pending(1L)).isEmpty();
+    }
+
+    @Test
+    public void flush_WritesTodosWithTheSameChangeTogether() {
+        //Arrange
+        var completionBuffer = new TodoCompletionBuffer(todoRepository, archiveRepository, outbox, TransactionOperations.withoutTransaction(), taskScheduler, true, 100, 500);
+        completionBuffer.buffer(todoDto(1L, false), true);
+        completionBuffer.buffer(todoDto(2L, false), true);
+        completionBuffer.buffer(todoDto(3L, true), false);
+        updatesEveryId();
+
+        //Act
+        completionBuffer.flush();
+
+        //Assert
+        verify(todoRepository).updateCompletedAndVersionByIdIn(idsOf(1L, 2L), eq(true), eq(1L));
+        verify(todoRepository).updateCompletedAndVersionByIdIn(idsOf(3L), eq(false), eq(1L));
+        verifyNoMoreInteractions(todoRepository);
+    }
+
+    @Test
+    public void flush_WritesAtMostBatchSizeIdsPerUpdate() {
+        //Arrange
+        var completionBuffer = new TodoCompletionBuffer(todoRepository, archiveRepository, outbox, TransactionOperations.withoutTransaction(), taskScheduler, true, 100, 2);
+        for (var id = 1L; id <= 5; id++)
+            completionBuffer.buffer(todoDto(id, false), true);
+
+        //Act
+        completionBuffer.flush();
+
+        //Assert
+        verify(todoRepository, times(3)).updateCompletedAndVersionByIdIn(
+                argThat(ids -> ids.size() <= 2), eq(true), eq(1L));
+    }
+
+    @Test
+    public void flush_OnlyWritesTheGivenIds() {
+        //Arrange
+        var completionBuffer = new TodoCompletionBuffer(todoRepository, archiveRepository, outbox, TransactionOperations.withoutTransaction(), taskScheduler, true, 100, 500);
+        completionBuffer.buffer(todoDto(1L, false), true);
+        completionBuffer.buffer(todoDto(2L, false), true);
+
+        //Act
+        completionBuffer.flush(Set.of(2L));
+
+        //Assert
+        verify(todoRepository).updateCompletedAndVersionByIdIn(idsOf(2L), eq(true), eq(1L));
+        Assertions.assertThat(completionBuffer.pending(1L)).isPresent();
+        Assertions.assertThat(completionBuffer.pending(2L)).isEmpty();
+    }
+
+    @Test
+    public void flush_KeepsTogglesBufferedWhileFlushing() {
+        //Arrange
+        var completionBuffer = new TodoCompletionBuffer(todoRepository, archiveRepository, outbox, TransactionOperations.withoutTransaction(), taskScheduler, true, 100, 500);
+        var todoDto = todoDto(1L, false);
+        completionBuffer.buffer(todoDto, true);
+        doAnswer(invocation -> {
+            completionBuffer.buffer(todoDto, false);
+            return 1;
+        }).when(todoRepository).updateCompletedAndVersionByIdIn(any(), anyBoolean(), anyLong());
+
+        //Act
+        completionBuffer.flush();
+
+        //Assert
+        var pending = completionBuffer.pending(1L).orElseThrow();
+        Assertions.assertThat(pending.todo().completed()).isFalse();
+        Assertions.assertThat(pending.todo().version()).isEqualTo(2L);
+        Assertions.assertThat(pending.writes()).isEqualTo(1L);
+    }
+
+    @Test
+    public void flush_WritesChangesOfTodosArchivedSinceToTheRestoredTodos() {
+        //Arrange
+        var completionBuffer = new TodoCompletionBuffer(todoRepository, archiveRepository, outbox, TransactionOperations.withoutTransaction(), taskScheduler, true, 100, 500);
+        completionBuffer.buffer(todoDto(1L, false), true);
+        completionBuffer.buffer(todoDto(2L, false), true);
+        when(todoRepository.updateCompletedAndVersionByIdIn(idsOf(1L, 2L), eq(true), eq(1L))).thenReturn(1);
+        when(todoRepository.findIdsByIdIn(idsOf(1L, 2L))).thenReturn(List.of(2L));
+        when(archiveRepository.restore(List.of(1L))).thenReturn(List.of(1L));
+
+        //Act
+        completionBuffer.flush();
+
+        //Assert
+        verify(todoRepository).updateCompletedAndVersionByIdIn(List.of(1L), true, 1L);
+        Assertions.assertThat(completionBuffer.pending(1L)).isEmpty();
+    }
+
+    @Test
+    public void flush_KeepsChangesWhenTheWriteFails() {
+        //Arrange
+        var completionBuffer = new TodoCompletionBuffer(todoRepository, archiveRepository, outbox, TransactionOperations.withoutTransaction(), taskScheduler, true, 100, 500);
+        completionBuffer.buffer(todoDto(1L, false), true);
+        when(todoRepository.updateCompletedAndVersionByIdIn(any(), anyBoolean(), anyLong()))
+                .thenThrow(new QueryTimeoutException("timed out"));
+
+        //Act
+        Assertions.assertThatThrownBy(completionBuffer::flush).isInstanceOf(QueryTimeoutException.class);
+
+        //Assert
+        Assertions.assertThat(completionBuffer.pending(1L)).isPresent();
+    }
+
+    @Test
+    public void buffer_HandsFlushToSchedulerWhenFull() {
+        //Arrange
+        var completionBuffer = new TodoCompletionBuffer(todoRepository, archiveRepository, outbox, TransactionOperations.withoutTransaction(), taskScheduler, true, 2, 500);
+        completionBuffer.buffer(todoDto(1L, false), true);
+        completionBuffer.buffer(todoDto(2L, false), true);
+        var flush = ArgumentCaptor.forClass(Runnable.class);
+
+        //Act
+        completionBuffer.buffer(todoDto(3L, false), true);
+        completionBuffer.buffer(todoDto(4L, false), true);
+
+        //Assert
+        verify(taskScheduler).schedule(flush.capture(), any(Instant.class));
+        verifyNoInteractions(todoRepository);
+        flush.getValue().run();
+        verify(todoRepository).updateCompletedAndVersionByIdIn(idsOf(1L, 2L, 3L, 4L), eq(true), eq(1L));
+        Assertions.assertThat(completionBuffer.pending(3L)).isEmpty();
+    }
+
+    @Test
+    public void flush_ForgetsChangesBeforeCommitAndBuffersThemAgainOnRollback() {
+        //Arrange
+        var completionBuffer = new TodoCompletionBuffer(todoRepository, archiveRepository, outbox, TransactionOperations.withoutTransaction(), taskScheduler, true, 100, 500);
+        completionBuffer.buffer(todoDto(1L, false), true);
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            completionBuffer.flush();
+            var pendingUntilCommit = completionBuffer.pending(1L);
+
+            //Act
+            TransactionSynchronizationUtils.triggerBeforeCommit(false);
+            var pendingAtCommit = completionBuffer.pending(1L);
+            TransactionSynchronizationUtils.invokeAfterCompletion(
+                    TransactionSynchronizationManager.getSynchronizations(), TransactionSynchronization.STATUS_ROLLED_BACK);
+
+            //Assert
+            Assertions.assertThat(pendingUntilCommit).isPresent();
+            Assertions.assertThat(pendingAtCommit).isEmpty();
+            Assertions.assertThat(completionBuffer.pending(1L))
+                    .hasValueSatisfying(pending -> Assertions.assertThat(pending.writes()).isEqualTo(1L));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    public void pendingCompletion_AppliesToStoredTodo() {
+        //Arrange
+        var pending = new TodoCompletionBuffer.PendingCompletion(todoDto(1L, true), 2);
+        var storedTodo = new TodoDto(1L, "Go for a run", LocalDate.now(), false, 7L);
+
+        //Act
+        var todo = pending.applyTo(storedTodo);
+
+        //Assert
+        Assertions.assertThat(todo).isEqualTo(new TodoDto(1L, "Go for a run", storedTodo.created_at(), true, 9L));
+    }
+
+    private void updatesEveryId() {
+        when(todoRepository.updateCompletedAndVersionByIdIn(any(), anyBoolean(), anyLong()))
+                .thenAnswer(invocation -> invocation.<Collection<Long>>getArgument(0).size());
+    }
+
+    private static TodoDto todoDto(Long id, boolean completed) {
+        return new TodoDto(id, "Go for a walk", LocalDate.now(), completed, 0L);
+    }
+
+    private static Collection<Long> idsOf(Long... ids) {
+        return argThat(actual -> Set.copyOf(actual).equals(Set.of(ids)) && actual.size() == ids.length);
+    }
+}
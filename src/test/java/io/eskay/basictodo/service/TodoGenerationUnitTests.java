@@ -0,0 +1,37 @@
+package io.eskay.basictodo.service;
+
+import io.eskay.basictodo.event.RemoteTodosChangedEvent;
+import io.eskay.basictodo.event.TodosBulkUpdatedEvent;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+public class TodoGenerationUnitTests {
+
+    @Test
+    public void current_AdvancesWithEveryChange() {
+        //Arrange
+        var todoGeneration = new TodoGeneration("", Duration.ofSeconds(1));
+        var before = todoGeneration.current();
+
+        //Act
+        todoGeneration.onTodosBulkUpdated(new TodosBulkUpdatedEvent(List.of(1L), true, 1));
+        todoGeneration.onRemoteTodosChanged(new RemoteTodosChangedEvent(List.of(2L)));
+
+        //Assert
+        Assertions.assertThat(todoGeneration.current()).isEqualTo(before + 2);
+    }
+
+    @Test
+    public void bootId_DiffersBetweenNodesAtTheSameGeneration() {
+        //Arrange
+        var node = new TodoGeneration("", Duration.ofSeconds(1));
+        var otherNode = new TodoGeneration("", Duration.ofSeconds(1));
+
+        //Assert
+        Assertions.assertThat(node.current()).isEqualTo(otherNode.current());
+        Assertions.assertThat(node.bootId()).isNotEqualTo(otherNode.bootId());
+    }
+}
@@ -0,0 +1,38 @@
+package io.eskay.basictodo.service;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class TodoListFormatUnitTests {
+
+    @Test
+    public void negotiate_WithoutAcceptOrAcceptingAnything_IsJson() {
+        //Act
+        var missing = TodoListFormat.negotiate(null);
+        var anything = TodoListFormat.negotiate("*/*");
+
+        //Assert
+        Assertions.assertThat(missing).contains(TodoListFormat.JSON);
+        Assertions.assertThat(anything).contains(TodoListFormat.JSON);
+    }
+
+    @Test
+    public void negotiate_PicksHighestQualityFormat() {
+        //Act
+        var format = TodoListFormat.negotiate("application/json;q=0.5, application/x-jackson-smile, */*;q=0.1");
+
+        //Assert
+        Assertions.assertThat(format).contains(TodoListFormat.SMILE);
+    }
+
+    @Test
+    public void negotiate_SkipsRefusedAndUnknownTypes() {
+        //Act
+        var format = TodoListFormat.negotiate("text/html, application/json;q=0, application/cbor;q=0.2");
+        var none = TodoListFormat.negotiate("text/html, application/xml");
+
+        //Assert
+        Assertions.assertThat(format).contains(TodoListFormat.CBOR);
+        Assertions.assertThat(none).isEmpty();
+    }
+}
@@ -0,0 +1,143 @@
+package io.eskay.basictodo.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import io.eskay.basictodo.dto.response.TodoDto;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.zip.GZIPInputStream;
+
+public class TodoListResponseCacheUnitTests {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    @Test
+    public void get_LoadsEachGenerationOnce() {
+        //Arrange
+        var responseCache = new TodoListResponseCache(objectMapper, DataSize.ofMegabytes(1), true, DataSize.ofKilobytes(1));
+        var loads = new AtomicInteger();
+
+        //Act
+        var first = responseCache.get(null, TodoListFormat.JSON, 1, false, () -> todos(loads.incrementAndGet()));
+        var second = responseCache.get(null, TodoListFormat.JSON, 1, false, () -> todos(loads.incrementAndGet()));
+        var otherFilter = responseCache.get(true, TodoListFormat.JSON, 1, false, () -> todos(loads.incrementAndGet()));
+        var nextGeneration = responseCache.get(null, TodoListFormat.JSON, 2, false, () -> todos(loads.incrementAndGet()));
+
+        //Assert
+        Assertions.assertThat(second).isSameAs(first);
+        Assertions.assertThat(otherFilter).isNotSameAs(first);
+        Assertions.assertThat(nextGeneration.generation()).isEqualTo(2);
+        Assertions.assertThat(loads).hasValue(3);
+    }
+
+    @Test
+    public void get_CachesEachFormatSeparately() throws IOException {
+        //Arrange
+        var responseCache = new TodoListResponseCache(objectMapper, DataSize.ofMegabytes(1), true, DataSize.ofKilobytes(1));
+        var loads = new AtomicInteger();
+        Supplier<List<TodoDto>> loader = () -> {
+            loads.incrementAndGet();
+            return todos(3);
+        };
+
+        //Act
+        var json = responseCache.get(null, TodoListFormat.JSON, 1, false, loader);
+        var cbor = responseCache.get(null, TodoListFormat.CBOR, 1, false, loader);
+        var cachedCbor = responseCache.get(null, TodoListFormat.CBOR, 1, false, loader);
+
+        //Assert
+        Assertions.assertThat(cachedCbor).isSameAs(cbor);
+        Assertions.assertThat(cbor.body()).isNotEqualTo(json.body());
+        Assertions.assertThat(new CBORMapper().findAndRegisterModules().readValue(cbor.body(), TodoDto[].class))
+                .containsExactly(objectMapper.readValue(json.body(), TodoDto[].class));
+        Assertions.assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    public void get_KeepsNewerGenerationOverOlderLoad() {
+        //Arrange
+        var responseCache = new TodoListResponseCache(objectMapper, DataSize.ofMegabytes(1), true, DataSize.ofKilobytes(1));
+        var loads = new AtomicInteger();
+        // the load for generation 1 was slow and finishes after generation 2 was cached
+        responseCache.get(null, TodoListFormat.JSON, 1, false, () -> {
+            responseCache.get(null, TodoListFormat.JSON, 2, false, () -> todos(loads.incrementAndGet()));
+            return todos(loads.incrementAndGet());
+        });
+
+        //Act
+        responseCache.get(null, TodoListFormat.JSON, 2, false, () -> todos(loads.incrementAndGet()));
+
+        //Assert
+        Assertions.assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    public void get_GzipsLargeListingsOnlyForClientsAcceptingIt() throws IOException {
+        //Arrange
+        var responseCache = new TodoListResponseCache(objectMapper, DataSize.ofMegabytes(1), true, DataSize.ofKilobytes(1));
+
+        //Act
+        var plain = responseCache.get(null, TodoListFormat.JSON, 1, false, () -> todos(100));
+        var large = responseCache.get(null, TodoListFormat.JSON, 1, true, () -> todos(100));
+        var cached = responseCache.get(null, TodoListFormat.JSON, 1, true, () -> todos(100));
+        var small = responseCache.get(true, TodoListFormat.JSON, 1, true, () -> todos(1));
+
+        //Assert
+        Assertions.assertThat(plain.gzipped()).isNull();
+        Assertions.assertThat(small.gzipped()).isNull();
+        Assertions.assertThat(cached).isSameAs(large);
+        Assertions.assertThat(large.body()).isEqualTo(objectMapper.writeValueAsBytes(todos(100)));
+        Assertions.assertThat(large.gzipped().length).isLessThan(large.body().length);
+        try (var json = new GZIPInputStream(new ByteArrayInputStream(large.gzipped()))) {
+            Assertions.assertThat(json.readAllBytes()).isEqualTo(large.body());
+        }
+    }
+
+    @Test
+    public void render_NeverGzips() {
+        //Arrange
+        var responseCache = new TodoListResponseCache(objectMapper, DataSize.ofMegabytes(1), true, DataSize.ofKilobytes(1));
+
+        //Act
+        var large = responseCache.render(TodoListFormat.JSON, 1, todos(100));
+
+        //Assert
+        Assertions.assertThat(large.gzipped()).isNull();
+    }
+
+    @Test
+    public void get_EvictsBeyondMaxSizeAndCountsIt() {
+        //Arrange
+        var responseCache = new TodoListResponseCache(objectMapper, DataSize.ofKilobytes(4), false, DataSize.ofKilobytes(1));
+        var registry = new SimpleMeterRegistry();
+        responseCache.bindTo(registry);
+
+        //Act
+        // each listing is about 3KB, two of them do not fit
+        responseCache.get(true, TodoListFormat.JSON, 1, false, () -> todos(50));
+        responseCache.get(false, TodoListFormat.JSON, 1, false, () -> todos(50));
+
+        //Assert
+        Assertions.assertThat(registry.get("cache.evictions").tag("cache", "todoListResponses").functionCounter().count())
+                .isPositive();
+        Assertions.assertThat(registry.get("cache.weight").tag("cache", "todoListResponses").gauge().value())
+                .isLessThanOrEqualTo(DataSize.ofKilobytes(4).toBytes());
+    }
+
+    private static List<TodoDto> todos(int count) {
+        var todos = new ArrayList<TodoDto>();
+        for (long id = 1; id <= count; id++)
+            todos.add(new TodoDto(id, "Go for a walk", LocalDate.of(2025, 7, 22), false, 0L));
+        return todos;
+    }
+}
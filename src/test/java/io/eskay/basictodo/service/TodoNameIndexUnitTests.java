@@ -0,0 +1,143 @@
+package io.eskay.basictodo.service;
+
+import io.eskay.basictodo.dto.response.TodoDto;
+import io.eskay.basictodo.entity.Todo;
+import io.eskay.basictodo.event.RemoteTodosChangedEvent;
+import io.eskay.basictodo.event.TodoChangedEvent;
+import io.eskay.basictodo.repository.TodoRepository;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class TodoNameIndexUnitTests {
+
+    @Mock
+    private TodoRepository todoRepository;
+
+    private TodoNameIndex nameIndex() {
+        return new TodoNameIndex(todoRepository, TransactionOperations.withoutTransaction());
+    }
+
+    @Test
+    public void search_FindsSubstringIgnoringCase() {
+        //Arrange
+        var nameIndex = nameIndex();
+        nameIndex.put(1L, "Go for a Walk");
+        nameIndex.put(2L, "Listen to music");
+        nameIndex.put(3L, "Walk the dog");
+
+        //Act
+        var ids = nameIndex.search("WALK", 10);
+
+        //Assert
+        Assertions.assertThat(ids).containsExactly(1L, 3L);
+    }
+
+    @Test
+    public void search_SkipsNamesWithTheTrigramsApart() {
+        //Arrange
+        var nameIndex = nameIndex();
+        // has 'abc' and 'bcd' but not 'abcd'
+        nameIndex.put(1L, "abc bcd");
+        nameIndex.put(2L, "xabcdx");
+
+        //Act
+        var ids = nameIndex.search("abcd", 10);
+
+        //Assert
+        Assertions.assertThat(ids).containsExactly(2L);
+    }
+
+    @Test
+    public void search_ReturnsLowestIdsUpToLimit() {
+        //Arrange
+        var nameIndex = nameIndex();
+        for (var id = 100L; id > 0; id--)
+            nameIndex.put(id, "Todo number " + id);
+
+        //Act
+        var ids = nameIndex.search("number 1", 3);
+
+        //Assert
+        Assertions.assertThat(ids).containsExactly(1L, 10L, 11L);
+    }
+
+    @Test
+    public void search_RejectsShortQuery() {
+        //Act + Assert
+        Assertions.assertThatThrownBy(() -> nameIndex().search("go", 10))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("query must be at least 3 chars");
+    }
+
+    @Test
+    public void onTodoChanged_FollowsRenamesAndDeletes() {
+        //Arrange
+        var nameIndex = nameIndex();
+        var created = new TodoDto(1L, "Go for a walk", LocalDate.now(), false, 0L);
+        var renamed = new TodoDto(1L, "Go for a run", LocalDate.now(), false, 1L);
+        nameIndex.onTodoChanged(new TodoChangedEvent(TodoChangedEvent.Type.CREATED, null, created));
+
+        //Act
+        nameIndex.onTodoChanged(new TodoChangedEvent(TodoChangedEvent.Type.UPDATED, created, renamed));
+        var walkIds = nameIndex.search("walk", 10);
+        var runIds = nameIndex.search("run", 10);
+        nameIndex.onTodoChanged(new TodoChangedEvent(TodoChangedEvent.Type.DELETED, renamed, null));
+
+        //Assert
+        Assertions.assertThat(walkIds).isEmpty();
+        Assertions.assertThat(runIds).containsExactly(1L);
+        Assertions.assertThat(nameIndex.search("run", 10)).isEmpty();
+        Assertions.assertThat(nameIndex.size()).isZero();
+    }
+
+    @Test
+    public void onRemoteTodosChanged_ReadsNamesBack() {
+        //Arrange
+        var nameIndex = nameIndex();
+        nameIndex.put(1L, "Go for a walk");
+        nameIndex.put(2L, "Walk the dog");
+        var renamed = Todo.builder().id(1L).name("Go for a run").build();
+        when(todoRepository.findAllByIdInOrderByIdAsc(List.of(1L, 2L))).thenReturn(List.of(renamed));
+
+        //Act
+        nameIndex.onRemoteTodosChanged(new RemoteTodosChangedEvent(List.of(1L, 2L)));
+
+        //Assert
+        Assertions.assertThat(nameIndex.search("walk", 10)).isEmpty();
+        Assertions.assertThat(nameIndex.search("run", 10)).containsExactly(1L);
+    }
+
+    @Test
+    public void load_KeepsChangesMadeWhileLoading() {
+        //Arrange
+        var nameIndex = nameIndex();
+        var first = new TodoDto(1L, "Go for a walk", LocalDate.now(), false, 0L);
+        var second = new TodoDto(2L, "Walk the dog", LocalDate.now(), false, 0L);
+        // the second todo is deleted after the stream read it, but before the index got to it
+        when(todoRepository.streamAllTodos()).thenReturn(Stream.of(first, second)
+                .peek(todo -> {
+                    if (todo.id() == 1L)
+                        nameIndex.remove(2L);
+                }));
+
+        //Act
+        var readyBeforeLoad = nameIndex.isReady();
+        nameIndex.load();
+
+        //Assert
+        Assertions.assertThat(readyBeforeLoad).isFalse();
+        Assertions.assertThat(nameIndex.isReady()).isTrue();
+        Assertions.assertThat(nameIndex.search("walk", 10)).containsExactly(1L);
+    }
+}
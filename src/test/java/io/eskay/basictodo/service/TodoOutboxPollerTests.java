@@ -0,0 +1,138 @@
+package io.eskay.basictodo.service;
+
+import io.eskay.basictodo.config.CacheConfig;
+import io.eskay.basictodo.event.RemoteTodosChangedEvent;
+import io.eskay.basictodo.repository.TodoOutboxRepository;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.jdbc.EmbeddedDatabaseConnection;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
+
+import java.time.Instant;
+import java.util.Set;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(connection = EmbeddedDatabaseConnection.H2)
+@Import({TodoOutbox.class, TodoOutboxPoller.class, TodoOutboxPollerTests.CacheTestConfig.class})
+@RecordApplicationEvents
+public class TodoOutboxPollerTests {
+
+    private static final String OTHER_NODE_ID = "other-node";
+
+    @Autowired
+    private TodoOutboxPoller poller;
+
+    @Autowired
+    private TodoOutbox outbox;
+
+    @Autowired
+    private TodoOutboxRepository outboxRepository;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private ApplicationEvents events;
+
+    @TestConfiguration
+    static class CacheTestConfig {
+
+        @Bean
+        public CacheManager cacheManager() {
+            return new ConcurrentMapCacheManager(CacheConfig.TODOS_CACHE);
+        }
+    }
+
+    @Test
+    public void poll_EvictsTodosChangedOnOtherNodes() {
+        //Arrange
+        var cache = cacheManager.getCache(CacheConfig.TODOS_CACHE);
+        cache.put(1L, "cached");
+        cache.put(2L, "cached");
+        outboxRepository.insertForTodo(1L, OTHER_NODE_ID);
+
+        //Act
+        poller.poll();
+
+        //Assert
+        Assertions.assertThat(cache.get(1L)).isNull();
+        Assertions.assertThat(cache.get(2L)).isNotNull();
+        Assertions.assertThat(events.stream(RemoteTodosChangedEvent.class))
+                .containsExactly(new RemoteTodosChangedEvent(Set.of(1L)));
+    }
+
+    @Test
+    public void poll_IgnoresOwnWrites() {
+        //Arrange
+        var cache = cacheManager.getCache(CacheConfig.TODOS_CACHE);
+        cache.put(1L, "cached");
+        outbox.recordChanged(1L);
+
+        //Act
+        poller.poll();
+
+        //Assert
+        Assertions.assertThat(cache.get(1L)).isNotNull();
+        Assertions.assertThat(events.stream(RemoteTodosChangedEvent.class)).isEmpty();
+    }
+
+    @Test
+    public void poll_HandlesEachRecordOnce() {
+        //Arrange
+        var cache = cacheManager.getCache(CacheConfig.TODOS_CACHE);
+        outboxRepository.insertForTodo(1L, OTHER_NODE_ID);
+        poller.poll();
+        cache.put(1L, "cached again");
+
+        //Act
+        // the record is still inside the window read back for late commits
+        poller.poll();
+
+        //Assert
+        Assertions.assertThat(cache.get(1L)).isNotNull();
+        Assertions.assertThat(events.stream(RemoteTodosChangedEvent.class)).hasSize(1);
+    }
+
+    @Test
+    public void poll_ClearsCacheWhenAllTodosChanged() {
+        //Arrange
+        var cache = cacheManager.getCache(CacheConfig.TODOS_CACHE);
+        cache.put(1L, "cached");
+        cache.put(2L, "cached");
+        outboxRepository.insertForTodo(null, OTHER_NODE_ID);
+
+        //Act
+        poller.poll();
+
+        //Assert
+        Assertions.assertThat(cache.get(1L)).isNull();
+        Assertions.assertThat(cache.get(2L)).isNull();
+        Assertions.assertThat(events.stream(RemoteTodosChangedEvent.class))
+                .containsExactly(new RemoteTodosChangedEvent(null));
+    }
+
+    @Test
+    public void deleteCreatedBefore_DeletesOnlyOlderRecords() {
+        //Arrange
+        outboxRepository.insertForTodo(1L, OTHER_NODE_ID);
+        var createdAt = outboxRepository.findNewestCreatedAt();
+
+        //Act
+        var keptCount = outboxRepository.deleteCreatedBefore(createdAt);
+        var deletedCount = outboxRepository.deleteCreatedBefore(createdAt.plusSeconds(1));
+
+        //Assert
+        Assertions.assertThat(keptCount).isZero();
+        Assertions.assertThat(deletedCount).isEqualTo(1);
+        Assertions.assertThat(outboxRepository.findCreatedSince(Instant.EPOCH)).isEmpty();
+    }
+}
@@ -0,0 +1,117 @@
+package io.eskay.basictodo.service;
+
+import io.eskay.basictodo.config.CacheConfig;
+import io.eskay.basictodo.dto.request.PatchTodoRequest;
+import io.eskay.basictodo.dto.response.TodoDto;
+import io.eskay.basictodo.mapper.TodoDtoMapper;
+import io.eskay.basictodo.mapper.TodoRequestMapper;
+import io.eskay.basictodo.repository.TodoArchiveRepository;
+import io.eskay.basictodo.repository.TodoRepository;
+import io.eskay.basictodo.repository.TodoUpdate;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.cache.CacheAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.time.LocalDate;
+import java.util.Optional;
+
+import static org.mockito.Mockito.*;
+
+@SpringBootTest(classes = {TodoServiceImpl.class, TodoDtoMapper.class, TodoRequestMapper.class, CacheConfig.class})
+@ImportAutoConfiguration(CacheAutoConfiguration.class)
+public class TodoServiceCachingTests {
+
+    @Autowired
+    private TodoService todoService;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @MockitoBean
+    private TodoRepository todoRepository;
+
+    @MockitoBean
+    private TodoArchiveRepository archiveRepository;
+
+    @MockitoBean
+    private TodoCompletionBuffer completionBuffer;
+
+    @MockitoBean
+    private TodoOutbox outbox;
+
+    @MockitoBean
+    private TodoNameIndex nameIndex;
+
+    @BeforeEach
+    public void clearCache() {
+        cacheManager.getCache(CacheConfig.TODOS_CACHE).clear();
+    }
+
+    @Test
+    public void getTodo_ServesRepeatedReadsFromCache() {
+        //Arrange
+        var todoDto = new TodoDto(1L, "Clean my apartment", LocalDate.now(), false, 0L);
+        when(todoRepository.findTodoDtoById(1L)).thenReturn(Optional.of(todoDto));
+
+        //Act
+        var firstRead = todoService.getTodo(1L);
+        var secondRead = todoService.getTodo(1L);
+
+        //Assert
+        Assertions.assertThat(secondRead).isEqualTo(firstRead);
+        verify(todoRepository, times(1)).findTodoDtoById(1L);
+    }
+
+    @Test
+    public void patchTodo_EvictsCachedTodo() {
+        //Arrange
+        var todoDto = new TodoDto(1L, "Clean my apartment", LocalDate.now(), false, 0L);
+        var patchedTodoDto = new TodoDto(1L, todoDto.name(), todoDto.created_at(), true, 1L);
+        when(todoRepository.findTodoDtoById(1L)).thenReturn(Optional.of(todoDto));
+        when(todoRepository.updateTodo(1L, null, true))
+                .thenReturn(Optional.of(new TodoUpdate(todoDto, patchedTodoDto)));
+        todoService.getTodo(1L);
+
+        //Act
+        todoService.patchTodo(new PatchTodoRequest(1L, null, true));
+        todoService.getTodo(1L);
+
+        //Assert
+        verify(todoRepository, times(2)).findTodoDtoById(1L);
+    }
+
+    @Test
+    public void patchTodo_WithoutChanges_KeepsCachedTodo() {
+        //Arrange
+        var todoDto = new TodoDto(1L, "Clean my apartment", LocalDate.now(), false, 0L);
+        when(todoRepository.findTodoDtoById(1L)).thenReturn(Optional.of(todoDto));
+        todoService.getTodo(1L);
+
+        //Act
+        todoService.patchTodo(new PatchTodoRequest(1L, "  ", null));
+
+        //Assert
+        Assertions.assertThat(cacheManager.getCache(CacheConfig.TODOS_CACHE).get(1L)).isNotNull();
+    }
+
+    @Test
+    public void deleteTodo_EvictsCachedTodo() {
+        //Arrange
+        var todoDto = new TodoDto(1L, "Clean my apartment", LocalDate.now(), false, 0L);
+        when(todoRepository.findTodoDtoById(1L)).thenReturn(Optional.of(todoDto));
+        when(todoRepository.deleteTodo(1L)).thenReturn(Optional.of(todoDto));
+        todoService.getTodo(1L);
+
+        //Act
+        todoService.deleteTodo(1L);
+
+        //Assert
+        Assertions.assertThat(cacheManager.getCache(CacheConfig.TODOS_CACHE).get(1L)).isNull();
+    }
+}
@@ -0,0 +1,401 @@
+package io.eskay.basictodo.service;
+
+import io.eskay.basictodo.dto.request.BulkCompleteTodosRequest;
+import io.eskay.basictodo.dto.request.CreateTodoRequest;
+import io.eskay.basictodo.dto.request.PatchTodoRequest;
+import io.eskay.basictodo.dto.request.UpdateTodoRequest;
+import io.eskay.basictodo.entity.Todo;
+import io.eskay.basictodo.exception.ResourceNotFoundException;
+import io.eskay.basictodo.mapper.TodoDtoMapper;
+import io.eskay.basictodo.mapper.TodoRequestMapper;
+import io.eskay.basictodo.pagination.TodoCursor;
+import io.eskay.basictodo.repository.TodoArchiveRepository;
+import io.eskay.basictodo.repository.TodoRepository;
+import io.eskay.basictodo.support.SqlStatementCounter;
+import io.eskay.basictodo.support.SqlStatementCounter.SqlStatementCounts;
+import jakarta.persistence.EntityManager;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.jdbc.EmbeddedDatabaseConnection;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.util.List;
+
+/*
+ * Holds every TodoService method to the exact number of statements it needs against a real database.
+ * An extra round trip, e.g. a findById in front of an update, fails here. Each call starts with an empty
+ * persistence context, as it would in its own request.
+ */
+@DataJpaTest(properties = SqlStatementCounter.STATEMENT_INSPECTOR_PROPERTY)
+@AutoConfigureTestDatabase(connection = EmbeddedDatabaseConnection.H2)
+@Import({TodoServiceImpl.class, TodoCompletionBuffer.class, TodoOutbox.class, TodoNameIndex.class,
+        TodoDtoMapper.class, TodoRequestMapper.class})
+public class TodoServiceStatementBudgetTests {
+
+    // every write is recorded in the outbox, in the same transaction
+    private static final SqlStatementCounts OUTBOX_INSERT = SqlStatementCounts.inserts(1);
+
+    @Autowired
+    private TodoService todoService;
+
+    @Autowired
+    private TodoRepository todoRepository;
+
+    @Autowired
+    private TodoArchiveRepository archiveRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private TodoDtoMapper dtoMapper;
+
+    @Autowired
+    private TodoRequestMapper requestMapper;
+
+    @Autowired
+    private TodoOutbox outbox;
+
+    @Autowired
+    private TodoNameIndex nameIndex;
+
+    @Autowired
+    private TransactionOperations transactionOperations;
+
+    @MockitoBean
+    private TaskScheduler taskScheduler;
+
+    private Todo todo;
+
+    @BeforeEach
+    public void seedTodo() {
+        todo = todoRepository.saveAndFlush(Todo.builder().name("Go for a walk").build());
+        entityManager.clear();
+    }
+
+    @Test
+    public void getAllTodos_IssuesOneSelect() {
+        //Act
+        var statements = statementsOf(() -> todoService.getAllTodos());
+
+        //Assert
+        Assertions.assertThat(statements).isEqualTo(SqlStatementCounts.selects(1));
+    }
+
+    @Test
+    public void getAllTodosByCompletedStatus_IssuesOneSelect() {
+        //Act
+        var statements = statementsOf(() -> todoService.getAllTodosByCompletedStatus(false));
+
+        //Assert
+        Assertions.assertThat(statements).isEqualTo(SqlStatementCounts.selects(1));
+    }
+
+    @Test
+    public void getTodosPage_IssuesOneSelect() {
+        //Arrange
+        var cursor = new TodoCursor(todo.getCreatedAt(), todo.getId()).encode();
+
+        //Act
+        var firstPageStatements = statementsOf(() -> todoService.getTodosPage(null, 50));
+        var nextPageStatements = statementsOf(() -> todoService.getTodosPage(cursor, 50));
+
+        //Assert
+        Assertions.assertThat(firstPageStatements).isEqualTo(SqlStatementCounts.selects(1));
+        Assertions.assertThat(nextPageStatements).isEqualTo(SqlStatementCounts.selects(1));
+    }
+
+    @Test
+    public void getTodosPageByCompletedStatus_IssuesOneSelect() {
+        //Arrange
+        var cursor = new TodoCursor(todo.getCreatedAt(), todo.getId()).encode();
+
+        //Act
+        var firstPageStatements = statementsOf(() -> todoService.getTodosPageByCompletedStatus(false, null, 50));
+        var nextPageStatements = statementsOf(() -> todoService.getTodosPageByCompletedStatus(false, cursor, 50));
+
+        //Assert
+        Assertions.assertThat(firstPageStatements).isEqualTo(SqlStatementCounts.selects(1));
+        Assertions.assertThat(nextPageStatements).isEqualTo(SqlStatementCounts.selects(1));
+    }
+
+    @Test
+    public void getTodo_IssuesOneSelect() {
+        //Act
+        var statements = statementsOf(() -> todoService.getTodo(todo.getId()));
+
+        //Assert
+        Assertions.assertThat(statements).isEqualTo(SqlStatementCounts.selects(1));
+    }
+
+    @Test
+    public void searchTodos_IssuesOneSelect() {
+        //Arrange
+        nameIndex.load();
+
+        //Act
+        var statements = statementsOf(() -> todoService.searchTodos("walk", 50));
+
+        //Assert
+        Assertions.assertThat(statements).isEqualTo(SqlStatementCounts.selects(1));
+    }
+
+    @Test
+    public void exportTodos_IssuesOneSelectPerTable() {
+        //Act
+        var statements = statementsOf(() -> todoService.exportTodos(exported -> {}));
+
+        //Assert
+        Assertions.assertThat(statements).isEqualTo(SqlStatementCounts.selects(2));
+    }
+
+    @Test
+    public void createTodo_IssuesOneInsertAndItsOutboxRecord() {
+        //Act
+        var statements = statementsOf(() -> todoService.createTodo(new CreateTodoRequest("Listen to music")));
+
+        //Assert
+        Assertions.assertThat(statements.withoutSequenceCalls()).isEqualTo(SqlStatementCounts.inserts(1).plus(OUTBOX_INSERT));
+    }
+
+    @Test
+    public void toggleCompletedStatus_IssuesOneUpdateAndItsOutboxRecord() {
+        //Act
+        var statements = statementsOf(() -> todoService.toggleCompletedStatus(todo.getId(), true));
+
+        //Assert
+        Assertions.assertThat(statements).isEqualTo(SqlStatementCounts.updates(1).plus(OUTBOX_INSERT));
+    }
+
+    @Test
+    public void updateTodo_IssuesOneUpdateAndItsOutboxRecord() {
+        //Act
+        var statements = statementsOf(() -> todoService.updateTodo(todo.getId(), "Go for a run"));
+
+        //Assert
+        Assertions.assertThat(statements).isEqualTo(SqlStatementCounts.updates(1).plus(OUTBOX_INSERT));
+    }
+
+    @Test
+    public void updateTodo_WithRequest_IssuesOneUpdateAndItsOutboxRecord() {
+        //Arrange
+        var request = new UpdateTodoRequest(todo.getId(), "Go for a run", true);
+
+        //Act
+        var statements = statementsOf(() -> todoService.updateTodo(request));
+
+        //Assert
+        Assertions.assertThat(statements).isEqualTo(SqlStatementCounts.updates(1).plus(OUTBOX_INSERT));
+    }
+
+    @Test
+    public void updateTodo_ForUnknownId_IssuesTheUpdateAndOneArchiveSelect() {
+        //Arrange
+        var request = new UpdateTodoRequest(-1L, "Go for a run", true);
+
+        //Act
+        var statements = statementsOf(() -> Assertions.assertThatThrownBy(() -> todoService.updateTodo(request))
+                .isInstanceOf(ResourceNotFoundException.class));
+
+        //Assert
+        Assertions.assertThat(statements).isEqualTo(SqlStatementCounts.updates(1).plus(SqlStatementCounts.selects(1)));
+    }
+
+    @Test
+    public void updateTodo_ForArchivedTodo_RestoresItAndUpdatesIt() {
+        //Arrange
+        archiveTodo(42L);
+        var request = new UpdateTodoRequest(42L, "Go for a run", false);
+
+        //Act
+        var statements = statementsOf(() -> Assertions.assertThat(todoService.updateTodo(request))
+                .satisfies(updated -> {
+                    Assertions.assertThat(updated.name()).isEqualTo("Go for a run");
+                    Assertions.assertThat(updated.completed()).isFalse();
+                    Assertions.assertThat(updated.version()).isEqualTo(4L);
+                }));
+
+        //Assert
+        // the missed update, locking the archived row, moving it back and updating it again
+        Assertions.assertThat(statements).isEqualTo(SqlStatementCounts.updates(2)
+                .plus(SqlStatementCounts.selects(1))
+                .plus(SqlStatementCounts.inserts(1))
+                .plus(SqlStatementCounts.deletes(1))
+                .plus(OUTBOX_INSERT));
+        Assertions.assertThat(archiveRepository.findTodoDtoById(42L)).isEmpty();
+        Assertions.assertThat(todoRepository.findTodoDtoById(42L)).isPresent();
+    }
+
+    @Test
+    public void patchTodo_IssuesOneUpdateAndItsOutboxRecord() {
+        //Arrange
+        var request = new PatchTodoRequest(todo.getId(), null, true);
+
+        //Act
+        var statements = statementsOf(() -> todoService.patchTodo(request));
+
+        //Assert
+        Assertions.assertThat(statements).isEqualTo(SqlStatementCounts.updates(1).plus(OUTBOX_INSERT));
+    }
+
+    @Test
+    public void patchTodo_WithoutChanges_IssuesOneSelect() {
+        //Arrange
+        var request = new PatchTodoRequest(todo.getId(), null, null);
+
+        //Act
+        var statements = statementsOf(() -> todoService.patchTodo(request));
+
+        //Assert
+        Assertions.assertThat(statements).isEqualTo(SqlStatementCounts.selects(1));
+    }
+
+    @Test
+    public void deleteTodo_IssuesOneDeleteAndItsOutboxRecord() {
+        //Act
+        var statements = statementsOf(() -> todoService.deleteTodo(todo.getId()));
+
+        //Assert
+        Assertions.assertThat(statements).isEqualTo(SqlStatementCounts.deletes(1).plus(OUTBOX_INSERT));
+    }
+
+    @Test
+    public void deleteTodo_ForUnknownId_IssuesTheDeleteAndOneArchiveSelect() {
+        //Act
+        var statements = statementsOf(() -> Assertions.assertThatThrownBy(() -> todoService.deleteTodo(-1L))
+                .isInstanceOf(ResourceNotFoundException.class));
+
+        //Assert
+        Assertions.assertThat(statements).isEqualTo(SqlStatementCounts.deletes(1).plus(SqlStatementCounts.selects(1)));
+    }
+
+    @Test
+    public void deleteTodo_ForArchivedTodo_DeletesItFromTheArchive() {
+        //Arrange
+        archiveTodo(42L);
+
+        //Act
+        var statements = statementsOf(() -> todoService.deleteTodo(42L));
+
+        //Assert
+        Assertions.assertThat(statements).isEqualTo(SqlStatementCounts.deletes(2)
+                .plus(SqlStatementCounts.selects(1))
+                .plus(OUTBOX_INSERT));
+        Assertions.assertThat(archiveRepository.findTodoDtoById(42L)).isEmpty();
+    }
+
+    @Test
+    public void toggleCompletedStatus_Bulk_IssuesOneUpdateAndItsOutboxRecord() {
+        //Arrange
+        var request = new BulkCompleteTodosRequest(List.of(todo.getId()), true);
+
+        //Act
+        var statements = statementsOf(() -> todoService.toggleCompletedStatus(request));
+
+        //Assert
+        Assertions.assertThat(statements).isEqualTo(SqlStatementCounts.updates(1).plus(OUTBOX_INSERT));
+    }
+
+    @Test
+    public void toggleCompletedStatus_Bulk_WithMissingIds_AlsoIssuesTwoSelects() {
+        //Arrange
+        var request = new BulkCompleteTodosRequest(List.of(todo.getId(), -1L), true);
+
+        //Act
+        var statements = statementsOf(() -> todoService.toggleCompletedStatus(request));
+
+        //Assert
+        // the ids in use, then the archived ones among the rest
+        Assertions.assertThat(statements).isEqualTo(SqlStatementCounts.updates(1).plus(SqlStatementCounts.selects(2)).plus(OUTBOX_INSERT));
+    }
+
+    @Test
+    public void toggleCompletedStatus_Bulk_WithArchivedIds_RestoresThem() {
+        //Arrange
+        archiveTodo(42L);
+        var request = new BulkCompleteTodosRequest(List.of(todo.getId(), 42L, -1L), false);
+
+        //Act
+        var response = todoService.toggleCompletedStatus(request);
+
+        //Assert
+        // the seeded todo is pending already, it exists but did not change
+        Assertions.assertThat(response.updated()).isEqualTo(1);
+        Assertions.assertThat(response.missingIds()).containsExactly(-1L);
+        Assertions.assertThat(archiveRepository.findTodoDtoById(42L)).isEmpty();
+        Assertions.assertThat(todoRepository.findTodoDtoById(42L))
+                .hasValueSatisfying(restored -> Assertions.assertThat(restored.completed()).isFalse());
+    }
+
+    @Test
+    public void toggleCompletedStatus_Bulk_ForAll_IssuesOneUpdateAndItsOutboxRecord() {
+        //Arrange
+        var request = new BulkCompleteTodosRequest(null, true, true);
+
+        //Act
+        var statements = statementsOf(() -> todoService.toggleCompletedStatus(request));
+
+        //Assert
+        Assertions.assertThat(statements).isEqualTo(SqlStatementCounts.updates(1).plus(OUTBOX_INSERT));
+    }
+
+    @Test
+    public void toggleCompletedStatus_Bulk_WithoutIds_IsRejectedWithoutAnyStatement() {
+        //Arrange
+        var request = new BulkCompleteTodosRequest(null, true);
+
+        //Act
+        var statements = statementsOf(() -> Assertions.assertThatThrownBy(() -> todoService.toggleCompletedStatus(request))
+                .isInstanceOf(IllegalArgumentException.class));
+
+        //Assert
+        Assertions.assertThat(statements).isEqualTo(SqlStatementCounts.selects(0));
+        Assertions.assertThat(todoRepository.findById(todo.getId()).orElseThrow().isCompleted()).isFalse();
+    }
+
+    @Test
+    public void toggleCompletedStatus_WithWriteBehind_WritesBurstOfTogglesOnce() {
+        //Arrange
+        var completionBuffer = new TodoCompletionBuffer(todoRepository, archiveRepository, outbox, transactionOperations, taskScheduler, true, 100, 500);
+        var writeBehindService = new TodoServiceImpl(
+                todoRepository, archiveRepository, dtoMapper, requestMapper, event -> {}, completionBuffer, outbox, nameIndex);
+
+        //Act
+        var toggleStatements = statementsOf(() -> {
+            for (var i = 0; i < 10; i++)
+                writeBehindService.toggleCompletedStatus(todo.getId(), i % 2 == 0);
+        });
+        var readStatements = statementsOf(() -> writeBehindService.getTodo(todo.getId()));
+        var flushStatements = statementsOf(completionBuffer::flush);
+
+        //Assert
+        Assertions.assertThat(toggleStatements).isEqualTo(SqlStatementCounts.selects(1));
+        Assertions.assertThat(readStatements).isEqualTo(SqlStatementCounts.selects(1));
+        Assertions.assertThat(flushStatements).isEqualTo(SqlStatementCounts.updates(1).plus(OUTBOX_INSERT));
+        Assertions.assertThat(todoRepository.findById(todo.getId()).orElseThrow().getVersion()).isEqualTo(10L);
+    }
+
+    private void archiveTodo(Long id) {
+        entityManager.createNativeQuery("""
+                        insert into basic_todo_archive (id, name, created_at, version)
+                        values (:id, 'Pay the rent', dateadd('DAY', -90, current_date), 3)""")
+                .setParameter("id", id)
+                .executeUpdate();
+    }
+
+    private SqlStatementCounts statementsOf(Runnable serviceCall) {
+        entityManager.clear();
+        SqlStatementCounter.reset();
+        serviceCall.run();
+        // pending inserts are part of the call's cost, they would be flushed when its transaction commits
+        entityManager.flush();
+        return SqlStatementCounter.counts();
+    }
+}
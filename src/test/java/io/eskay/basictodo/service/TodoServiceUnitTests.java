@@ -1,22 +1,35 @@
 package io.eskay.basictodo.service;
 
+import io.eskay.basictodo.dto.request.BulkCompleteTodosRequest;
 import io.eskay.basictodo.dto.request.CreateTodoRequest;
+import io.eskay.basictodo.dto.request.PatchTodoRequest;
+import io.eskay.basictodo.dto.request.UpdateTodoRequest;
 import io.eskay.basictodo.dto.response.TodoDto;
 import io.eskay.basictodo.entity.Todo;
 import io.eskay.basictodo.exception.ResourceNotFoundException;
 import io.eskay.basictodo.mapper.TodoDtoMapper;
 import io.eskay.basictodo.mapper.TodoRequestMapper;
+import io.eskay.basictodo.pagination.TodoCursor;
+import io.eskay.basictodo.event.TodoChangedEvent;
+import io.eskay.basictodo.event.TodosBulkUpdatedEvent;
+import io.eskay.basictodo.repository.TodoArchiveRepository;
 import io.eskay.basictodo.repository.TodoRepository;
+import io.eskay.basictodo.repository.TodoUpdate;
 import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
@@ -27,12 +40,27 @@ public class TodoServiceUnitTests {
     @Mock
     private TodoRepository todoRepository;
 
+    @Mock
+    private TodoArchiveRepository archiveRepository;
+
     @Mock
     private TodoDtoMapper dtoMapper;
 
     @Mock
     private TodoRequestMapper requestMapper;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private TodoCompletionBuffer completionBuffer;
+
+    @Mock
+    private TodoOutbox outbox;
+
+    @Mock
+    private TodoNameIndex nameIndex;
+
     @InjectMocks
     private TodoServiceImpl todoService;
 
@@ -50,16 +78,16 @@ public class TodoServiceUnitTests {
                 todo1.getId(),
                 todo1.getName(),
                 todo1.getCreatedAt(),
-                todo1.isCompleted());
+                todo1.isCompleted(),
+                0L);
         var todo2Dto = new TodoDto(
                 todo2.getId(),
                 todo2.getName(),
                 todo2.getCreatedAt(),
-                todo2.isCompleted());
+                todo2.isCompleted(),
+                0L);
 
-        when(todoRepository.findAll()).thenReturn(List.of(todo1,todo2));
-        when(dtoMapper.apply(todo1)).thenReturn(todo1Dto);
-        when(dtoMapper.apply(todo2)).thenReturn(todo2Dto);
+        when(todoRepository.findAllTodoDtos()).thenReturn(List.of(todo1Dto,todo2Dto));
 
         //Act
         var todoList = todoService.getAllTodos();
@@ -73,7 +101,7 @@ public class TodoServiceUnitTests {
     @Test
     public void getAllTodos_ReturnsEmptyTodoDtoList() {
         //Arrange
-        when(todoRepository.findAll()).thenReturn(List.of());
+        when(todoRepository.findAllTodoDtos()).thenReturn(List.of());
 
         //Act
         var todoList = todoService.getAllTodos();
@@ -94,16 +122,16 @@ public class TodoServiceUnitTests {
                 todo1.getId(),
                 todo1.getName(),
                 todo1.getCreatedAt(),
-                todo1.isCompleted());
+                todo1.isCompleted(),
+                0L);
         var todo2Dto = new TodoDto(
                 todo2.getId(),
                 todo2.getName(),
                 todo2.getCreatedAt(),
-                todo2.isCompleted());
+                todo2.isCompleted(),
+                0L);
 
-        when(todoRepository.findAllByCompleted(filterBy)).thenReturn(List.of(todo1,todo2));
-        when(dtoMapper.apply(todo1)).thenReturn(todo1Dto);
-        when(dtoMapper.apply(todo2)).thenReturn(todo2Dto);
+        when(todoRepository.findAllTodoDtosByCompleted(filterBy)).thenReturn(List.of(todo1Dto,todo2Dto));
 
         //Act
         var todoList = todoService.getAllTodosByCompletedStatus(filterBy);
@@ -120,7 +148,7 @@ public class TodoServiceUnitTests {
     public void getAllTodosByCompletedStatus_ReturnsEmptyTodoDtoList() {
         //Arrange
         boolean filterBy = false;
-        when(todoRepository.findAllByCompleted(filterBy)).thenReturn(List.of());
+        when(todoRepository.findAllTodoDtosByCompleted(filterBy)).thenReturn(List.of());
 
         //Act
         var todoList = todoService.getAllTodosByCompletedStatus(filterBy);
@@ -142,7 +170,8 @@ public class TodoServiceUnitTests {
                 todo.getId(),
                 todo.getName(),
                 todo.getCreatedAt(),
-                todo.isCompleted());
+                todo.isCompleted(),
+                0L);
 
         when(requestMapper.apply(request)).thenReturn(todo);
         when(todoRepository.save(todo)).thenReturn(todo);
@@ -154,6 +183,8 @@ public class TodoServiceUnitTests {
         //Assert
         Assertions.assertThat(savedTodo).isNotNull();
         Assertions.assertThat(savedTodo).isEqualTo(todoDto);
+        verify(outbox).recordChanged(1L);
+        verify(eventPublisher).publishEvent(new TodoChangedEvent(TodoChangedEvent.Type.CREATED, null, todoDto));
     }
 
     @Test
@@ -168,10 +199,10 @@ public class TodoServiceUnitTests {
                 todo.getId(),
                 todo.getName(),
                 todo.getCreatedAt(),
-                todo.isCompleted());
+                todo.isCompleted(),
+                0L);
 
-        when(todoRepository.findById(id)).thenReturn(Optional.of(todo));
-        when(dtoMapper.apply(todo)).thenReturn(todoDto);
+        when(todoRepository.findTodoDtoById(id)).thenReturn(Optional.of(todoDto));
 
         //Act
         var foundTodo = todoService.getTodo(id);
@@ -185,37 +216,76 @@ public class TodoServiceUnitTests {
     public void getTodo_ThrowsNotFound() {
         //Arrange
         Long id = 1L;
-        when(todoRepository.findById(id)).thenReturn(Optional.empty());
+        when(todoRepository.findTodoDtoById(id)).thenReturn(Optional.empty());
 
         //Act
         org.junit.jupiter.api.Assertions.assertThrows(ResourceNotFoundException.class, () -> todoService.getTodo(id));
     }
 
+    @Test
+    public void getTodoIncludingArchived_FallsBackToArchive() {
+        //Arrange
+        Long id = 1L;
+        var archivedTodo = new TodoDto(id, "Clean my apartment", LocalDate.now().minusYears(1), true, 3L);
+        when(todoRepository.findTodoDtoById(id)).thenReturn(Optional.empty());
+        when(archiveRepository.findTodoDtoById(id)).thenReturn(Optional.of(archivedTodo));
+
+        //Act
+        var foundTodo = todoService.getTodoIncludingArchived(id);
+
+        //Assert
+        Assertions.assertThat(foundTodo).isEqualTo(archivedTodo);
+    }
+
+    @Test
+    public void getTodoIncludingArchived_PrefersTodoInUse() {
+        //Arrange
+        Long id = 1L;
+        var todoDto = new TodoDto(id, "Clean my apartment", LocalDate.now(), false, 0L);
+        when(todoRepository.findTodoDtoById(id)).thenReturn(Optional.of(todoDto));
+
+        //Act
+        var foundTodo = todoService.getTodoIncludingArchived(id);
+
+        //Assert
+        Assertions.assertThat(foundTodo).isEqualTo(todoDto);
+        verify(archiveRepository, never()).findTodoDtoById(any());
+    }
+
+    @Test
+    public void getTodoIncludingArchived_ThrowsNotFound() {
+        //Arrange
+        Long id = 1L;
+        when(todoRepository.findTodoDtoById(id)).thenReturn(Optional.empty());
+        when(archiveRepository.findTodoDtoById(id)).thenReturn(Optional.empty());
+
+        //Act
+        org.junit.jupiter.api.Assertions.assertThrows(ResourceNotFoundException.class,
+                () -> todoService.getTodoIncludingArchived(id));
+    }
+
     @Test
     public void toggleCompletedStatus_ReturnsUpdatedTodoDto() {
         //Arrange
         Long id = 1L;
         boolean isComplete = true;
-        var todo = Todo.builder()
-                .id(id).name("Watch tonight's UCL final")
-                .createdAt(LocalDate.now())
-                .completed(false).build();
-        var todoDto = new TodoDto(
-                todo.getId(),
-                todo.getName(),
-                todo.getCreatedAt(),
-                todo.isCompleted());
+        var previousTodoDto = new TodoDto(id,"Watch tonight's UCL final",LocalDate.now(),!isComplete,0L);
+        var todoDto = new TodoDto(id,"Watch tonight's UCL final",LocalDate.now(),isComplete,1L);
 
-        when(todoRepository.findById(id)).thenReturn(Optional.of(todo));
-        when(todoRepository.save(todo)).thenReturn(todo);
-        when(dtoMapper.apply(todo)).thenReturn(todoDto);
+        when(todoRepository.updateTodo(id,null,isComplete))
+                .thenReturn(Optional.of(new TodoUpdate(previousTodoDto,todoDto)));
 
         //Act
         var returnedTodo = todoService.toggleCompletedStatus(id,isComplete);
 
         //Assert
         Assertions.assertThat(returnedTodo).isNotNull();
-        Assertions.assertThat(todo.isCompleted()).isEqualTo(isComplete);
+        Assertions.assertThat(returnedTodo.completed()).isEqualTo(isComplete);
+        verify(todoRepository, never()).findTodoDtoById(any());
+        verify(todoRepository, never()).save(any());
+        verify(outbox).recordChanged(id);
+        verify(eventPublisher).publishEvent(
+                new TodoChangedEvent(TodoChangedEvent.Type.PATCHED, previousTodoDto, todoDto));
     }
 
     @Test
@@ -223,7 +293,7 @@ public class TodoServiceUnitTests {
         //Arrange
         Long id = 1L;
         boolean isComplete = true;
-        when(todoRepository.findById(id)).thenReturn(Optional.empty());
+        when(todoRepository.updateTodo(id,null,isComplete)).thenReturn(Optional.empty());
 
         //Act
         org.junit.jupiter.api.Assertions.assertThrows(ResourceNotFoundException.class,() -> todoService.toggleCompletedStatus(id,isComplete));
@@ -231,36 +301,39 @@ public class TodoServiceUnitTests {
         //Assert
         verify(todoRepository, never()).save(any());
         verify(dtoMapper, never()).apply(any());
+        verifyNoInteractions(eventPublisher);
     }
 
     @Test
     public void deleteTodo_ReturnsVoid() {
         //Arrange
         Long id = 1L;
-        var todo = Todo.builder()
-                .id(id).name("Order dinner")
-                .createdAt(LocalDate.now())
-                .completed(false).build();
-        when(todoRepository.findById(id)).thenReturn(Optional.of(todo));
+        var todoDto = new TodoDto(id,"Watch tonight's UCL final",LocalDate.now(),false,0L);
+        when(todoRepository.deleteTodo(id)).thenReturn(Optional.of(todoDto));
 
         //Act
         todoService.deleteTodo(id);
 
         //Assert
-        verify(todoRepository).deleteById(id);
+        verify(todoRepository).deleteTodo(id);
+        verify(todoRepository, never()).findTodoDtoById(any());
+        verify(outbox).recordChanged(id);
+        verify(eventPublisher).publishEvent(new TodoChangedEvent(TodoChangedEvent.Type.DELETED, todoDto, null));
     }
 
     @Test
     public void deleteTodo_ThrowsNotFound() {
         //Arrange
         Long id = 1L;
-        when(todoRepository.findById(id)).thenReturn(Optional.empty());
+        when(todoRepository.deleteTodo(id)).thenReturn(Optional.empty());
 
         //Act
         org.junit.jupiter.api.Assertions.assertThrows(ResourceNotFoundException.class,() -> todoService.deleteTodo(id));
 
         //Assert
-        verify(todoRepository, never()).deleteById(id);
+        verify(todoRepository).deleteTodo(id);
+        verifyNoInteractions(outbox);
+        verifyNoInteractions(eventPublisher);
     }
 
     @Test
@@ -268,40 +341,369 @@ public class TodoServiceUnitTests {
         //Arrange
         Long id = 1L;
         String newName = "Buy ps5 for son";
+        var previousTodoDto = new TodoDto(id,"Buy ps4 for son",LocalDate.now(),false,0L);
+        var todoDto = new TodoDto(id,newName,LocalDate.now(),false,1L);
+
+        when(todoRepository.updateTodo(id,newName,null))
+                .thenReturn(Optional.of(new TodoUpdate(previousTodoDto,todoDto)));
+
+        //Act
+        var updatedTodo = todoService.updateTodo(id,newName);
+
+        //Assert
+        Assertions.assertThat(updatedTodo).isNotNull();
+        Assertions.assertThat(updatedTodo.name()).isEqualTo(newName);
+        verify(todoRepository, never()).findTodoDtoById(any());
+    }
+
+    @Test
+    public void updateTodo_ThrowsNotFound() {
+        //Arrange
+        Long id = 1L;
+        String newName = "Buy ticker for movies";
+        when(todoRepository.updateTodo(id,newName,null)).thenReturn(Optional.empty());
+
+        //Act
+        org.junit.jupiter.api.Assertions.assertThrows(ResourceNotFoundException.class, () -> todoService.updateTodo(id,newName));
+
+        //Assert
+        verify(todoRepository, never()).save(any());
+        verify(dtoMapper, never()).apply(any());
+    }
+
+    @Test
+    public void updateTodo_WithRequest_ReturnsUpdatedTodoDto() {
+        //Arrange
+        var request = new UpdateTodoRequest(1L,"Watch the sky fall",true);
+        var previousTodoDto = new TodoDto(request.id(),"Watch the sun rise",LocalDate.now(),false,0L);
+        var todoDto = new TodoDto(request.id(),request.name(),LocalDate.now(),request.completed(),1L);
+        when(todoRepository.updateTodo(request.id(),request.name(),request.completed()))
+                .thenReturn(Optional.of(new TodoUpdate(previousTodoDto,todoDto)));
+
+        //Act
+        var updatedTodo = todoService.updateTodo(request);
+
+        //Assert
+        Assertions.assertThat(updatedTodo).isEqualTo(todoDto);
+        verify(eventPublisher).publishEvent(
+                new TodoChangedEvent(TodoChangedEvent.Type.UPDATED, previousTodoDto, todoDto));
+    }
+
+    @Test
+    public void patchTodo_IgnoresInvalidName() {
+        //Arrange
+        var request = new PatchTodoRequest(1L,"abc",true);
+        var previousTodoDto = new TodoDto(request.id(),"Walk the dog",LocalDate.now(),false,0L);
+        var todoDto = new TodoDto(request.id(),"Walk the dog",LocalDate.now(),true,1L);
+        when(todoRepository.updateTodo(request.id(),null,true))
+                .thenReturn(Optional.of(new TodoUpdate(previousTodoDto,todoDto)));
+
+        //Act
+        var patchedTodo = todoService.patchTodo(request);
+
+        //Assert
+        Assertions.assertThat(patchedTodo).isEqualTo(todoDto);
+    }
+
+    @Test
+    public void patchTodo_WithoutChanges_ReturnsCurrentTodo() {
+        //Arrange
+        var request = new PatchTodoRequest(1L,null,null);
         var todo = Todo.builder()
-                .id(id).name("Buy motor car for son")
+                .id(request.id()).name("Walk the dog")
                 .createdAt(LocalDate.now())
                 .completed(false).build();
         var todoDto = new TodoDto(
                 todo.getId(),
                 todo.getName(),
                 todo.getCreatedAt(),
-                todo.isCompleted());
+                todo.isCompleted(),
+                0L);
+        when(todoRepository.findTodoDtoById(request.id())).thenReturn(Optional.of(todoDto));
 
-        when(todoRepository.findById(id)).thenReturn(Optional.of(todo));
-        when(todoRepository.save(todo)).thenReturn(todo);
+        //Act
+        var patchedTodo = todoService.patchTodo(request);
+
+        //Assert
+        Assertions.assertThat(patchedTodo).isEqualTo(todoDto);
+        verify(todoRepository, never()).updateTodo(any(),any(),any());
+    }
+
+    @Test
+    public void patchTodo_WithoutChanges_ForArchivedTodo_ThrowsNotFound() {
+        //Arrange
+        var request = new PatchTodoRequest(1L,null,null);
+        when(todoRepository.findTodoDtoById(request.id())).thenReturn(Optional.empty());
+
+        //Act
+        var thrown = Assertions.catchThrowable(() -> todoService.patchTodo(request));
+
+        //Assert
+        Assertions.assertThat(thrown).isInstanceOf(ResourceNotFoundException.class);
+        verify(archiveRepository, never()).findTodoDtoById(any());
+    }
+
+    @Test
+    public void patchTodo_ThrowsNotFound() {
+        //Arrange
+        var request = new PatchTodoRequest(1L,"Walk the dog",null);
+        when(todoRepository.updateTodo(request.id(),request.name(),null)).thenReturn(Optional.empty());
+
+        //Act
+        org.junit.jupiter.api.Assertions.assertThrows(ResourceNotFoundException.class, () -> todoService.patchTodo(request));
+    }
+
+    @Test
+    public void getTodosPage_ReturnsPageWithNextCursor() {
+        //Arrange
+        var todo1 = Todo.builder().id(1L).name("Go for a walk").createdAt(LocalDate.now()).completed(false).build();
+        var todo2 = Todo.builder().id(2L).name("Listen to music").createdAt(LocalDate.now()).completed(false).build();
+        var todo1Dto = new TodoDto(
+                todo1.getId(),
+                todo1.getName(),
+                todo1.getCreatedAt(),
+                todo1.isCompleted(),
+                0L);
+
+        when(todoRepository.findAllByOrderByCreatedAtAscIdAsc(Limit.of(2))).thenReturn(List.of(todo1,todo2));
+        when(dtoMapper.apply(todo1)).thenReturn(todo1Dto);
+
+        //Act
+        var page = todoService.getTodosPage(null, 1);
+
+        //Assert
+        Assertions.assertThat(page.todos()).containsExactly(todo1Dto);
+        Assertions.assertThat(TodoCursor.decode(page.nextCursor()))
+                .isEqualTo(new TodoCursor(todo1.getCreatedAt(), todo1.getId()));
+    }
+
+    @Test
+    public void searchTodos_ReturnsTodosFoundInNameIndex() {
+        //Arrange
+        var todo = Todo.builder().id(7L).name("Go for a walk").createdAt(LocalDate.now()).completed(false).build();
+        var todoDto = new TodoDto(todo.getId(), todo.getName(), todo.getCreatedAt(), todo.isCompleted(), 0L);
+        when(nameIndex.isReady()).thenReturn(true);
+        when(nameIndex.search("walk", 10)).thenReturn(List.of(7L));
+        when(todoRepository.findAllByIdInOrderByIdAsc(List.of(7L))).thenReturn(List.of(todo));
         when(dtoMapper.apply(todo)).thenReturn(todoDto);
+        when(completionBuffer.pending(7L)).thenReturn(Optional.empty());
 
         //Act
-        var updatedTodo = todoService.updateTodo(id,newName);
+        var todos = todoService.searchTodos("walk", 10);
 
         //Assert
-        Assertions.assertThat(updatedTodo).isNotNull();
-        Assertions.assertThat(todo.getName()).isEqualTo(newName);
+        Assertions.assertThat(todos).containsExactly(todoDto);
+        verify(todoRepository, never()).findAllByNameContainingIgnoreCaseOrderByIdAsc(any(), any());
     }
 
     @Test
-    public void updateTodo_ThrowsNotFound() {
+    public void searchTodos_WhileNameIndexLoads_SearchesDatabase() {
         //Arrange
-        Long id = 1L;
-        String newName = "Buy ticker for movies";
-        when(todoRepository.findById(id)).thenReturn(Optional.empty());
+        var todo = Todo.builder().id(7L).name("Go for a walk").createdAt(LocalDate.now()).completed(false).build();
+        var todoDto = new TodoDto(todo.getId(), todo.getName(), todo.getCreatedAt(), todo.isCompleted(), 0L);
+        when(nameIndex.isReady()).thenReturn(false);
+        when(todoRepository.findAllByNameContainingIgnoreCaseOrderByIdAsc("walk", Limit.of(10)))
+                .thenReturn(List.of(todo));
+        when(dtoMapper.apply(todo)).thenReturn(todoDto);
+        when(completionBuffer.pending(7L)).thenReturn(Optional.empty());
 
         //Act
-        org.junit.jupiter.api.Assertions.assertThrows(ResourceNotFoundException.class, () -> todoService.updateTodo(id,newName));
+        var todos = todoService.searchTodos("walk", 10);
 
         //Assert
-        verify(todoRepository, never()).save(any());
+        Assertions.assertThat(todos).containsExactly(todoDto);
+        verify(nameIndex, never()).search(any(), anyInt());
+    }
+
+    @Test
+    public void getTodosPage_ReturnsLastPageWithoutNextCursor() {
+        //Arrange
+        var cursor = new TodoCursor(LocalDate.now(), 1L);
+        var todo2 = Todo.builder().id(2L).name("Listen to music").createdAt(LocalDate.now()).completed(false).build();
+        var todo2Dto = new TodoDto(
+                todo2.getId(),
+                todo2.getName(),
+                todo2.getCreatedAt(),
+                todo2.isCompleted(),
+                0L);
+
+        when(todoRepository.findAllAfter(cursor.createdAt(), cursor.id(), Limit.of(3))).thenReturn(List.of(todo2));
+        when(dtoMapper.apply(todo2)).thenReturn(todo2Dto);
+
+        //Act
+        var page = todoService.getTodosPage(cursor.encode(), 2);
+
+        //Assert
+        Assertions.assertThat(page.todos()).containsExactly(todo2Dto);
+        Assertions.assertThat(page.nextCursor()).isNull();
+    }
+
+    @Test
+    public void getTodosPageByCompletedStatus_ThrowsOnInvalidCursor() {
+        //Act
+        org.junit.jupiter.api.Assertions.assertThrows(IllegalArgumentException.class,
+                () -> todoService.getTodosPageByCompletedStatus(false, "not-a-cursor", 10));
+
+        //Assert
+        verifyNoInteractions(todoRepository);
+    }
+
+    @Test
+    public void exportTodos_PassesEveryStreamedTodoToConsumer() {
+        //Arrange
+        var todo1Dto = new TodoDto(1L,"Go for a walk",LocalDate.now(),false,0L);
+        var todo2Dto = new TodoDto(2L,"Listen to music",LocalDate.now(),true,0L);
+        var archivedDto = new TodoDto(3L,"Pay the rent",LocalDate.now().minusDays(90),true,2L);
+        when(todoRepository.streamAllTodos()).thenReturn(Stream.of(todo1Dto,todo2Dto));
+        when(archiveRepository.streamAllTodos()).thenReturn(Stream.of(archivedDto));
+        var exported = new ArrayList<TodoDto>();
+
+        //Act
+        todoService.exportTodos(exported::add);
+
+        //Assert
+        Assertions.assertThat(exported).containsExactly(todo1Dto,todo2Dto,archivedDto);
         verify(dtoMapper, never()).apply(any());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void toggleCompletedStatus_Bulk_ReturnsUpdatedCount() {
+        //Arrange
+        var request = new BulkCompleteTodosRequest(List.of(1L,2L,2L), true);
+        var ids = new LinkedHashSet<>(List.of(1L,2L));
+        when(todoRepository.updateCompletedByIdIn(ids, true)).thenReturn(2);
+
+        //Act
+        var result = todoService.toggleCompletedStatus(request);
+
+        //Assert
+        Assertions.assertThat(result.updated()).isEqualTo(2);
+        Assertions.assertThat(result.missingIds()).isEmpty();
+        verify(todoRepository, never()).findIdsByIdIn(any());
+        verify(outbox).recordChanged(ids);
+    }
+
+    @Test
+    public void toggleCompletedStatus_Bulk_ReturnsMissingIds() {
+        //Arrange
+        var request = new BulkCompleteTodosRequest(List.of(1L,2L,3L), false);
+        var ids = new LinkedHashSet<>(request.ids());
+        when(todoRepository.updateCompletedByIdIn(ids, false)).thenReturn(1);
+        when(todoRepository.findIdsByIdIn(ids)).thenReturn(List.of(2L));
+
+        //Act
+        var result = todoService.toggleCompletedStatus(request);
+
+        //Assert
+        Assertions.assertThat(result.updated()).isEqualTo(1);
+        Assertions.assertThat(result.missingIds()).containsExactly(1L,3L);
+    }
+
+    @Test
+    public void toggleCompletedStatus_Bulk_ForAllUpdatesAll() {
+        //Arrange
+        var request = new BulkCompleteTodosRequest(null, true, true);
+        when(todoRepository.updateCompletedForAll(true)).thenReturn(5);
+
+        //Act
+        var result = todoService.toggleCompletedStatus(request);
+
+        //Assert
+        Assertions.assertThat(result.updated()).isEqualTo(5);
+        verify(todoRepository, never()).updateCompletedByIdIn(any(), anyBoolean());
+        verify(outbox).recordAllChanged();
+        verify(eventPublisher).publishEvent(new TodosBulkUpdatedEvent(null, true, 5));
+    }
+
+    @Test
+    public void toggleCompletedStatus_Bulk_WithoutIdsThrowsIllegalArgument() {
+        //Arrange
+        var request = new BulkCompleteTodosRequest(null, true);
+
+        //Act
+        org.junit.jupiter.api.Assertions.assertThrows(IllegalArgumentException.class,
+                () -> todoService.toggleCompletedStatus(request));
+
+        //Assert
+        verifyNoInteractions(todoRepository);
+    }
+
+    @Test
+    public void toggleCompletedStatus_WithWriteBehind_BuffersTheChange() {
+        //Arrange
+        Long id = 1L;
+        var previousTodoDto = new TodoDto(id,"Watch tonight's UCL final",LocalDate.now(),false,0L);
+        var todoDto = new TodoDto(id,"Watch tonight's UCL final",LocalDate.now(),true,1L);
+
+        when(completionBuffer.isEnabled()).thenReturn(true);
+        when(todoRepository.findTodoDtoById(id)).thenReturn(Optional.of(previousTodoDto));
+        when(completionBuffer.buffer(previousTodoDto, true)).thenReturn(todoDto);
+
+        //Act
+        var returnedTodo = todoService.toggleCompletedStatus(id,true);
+
+        //Assert
+        Assertions.assertThat(returnedTodo).isEqualTo(todoDto);
+        verify(todoRepository, never()).updateTodo(any(), any(), any());
+        verifyNoInteractions(outbox);
+        verify(eventPublisher).publishEvent(
+                new TodoChangedEvent(TodoChangedEvent.Type.PATCHED, previousTodoDto, todoDto));
+    }
+
+    @Test
+    public void toggleCompletedStatus_WithWriteBehind_ReadsPendingTodoFromBuffer() {
+        //Arrange
+        Long id = 1L;
+        var pendingTodoDto = new TodoDto(id,"Watch tonight's UCL final",LocalDate.now(),true,1L);
+        var todoDto = new TodoDto(id,"Watch tonight's UCL final",LocalDate.now(),false,2L);
+
+        when(completionBuffer.isEnabled()).thenReturn(true);
+        when(completionBuffer.pending(id))
+                .thenReturn(Optional.of(new TodoCompletionBuffer.PendingCompletion(pendingTodoDto, 1)));
+        when(completionBuffer.buffer(pendingTodoDto, false)).thenReturn(todoDto);
+
+        //Act
+        var returnedTodo = todoService.toggleCompletedStatus(id,false);
+
+        //Assert
+        Assertions.assertThat(returnedTodo).isEqualTo(todoDto);
+        verifyNoInteractions(todoRepository);
+    }
+
+    @Test
+    public void getTodo_AppliesPendingCompletion() {
+        //Arrange
+        Long id = 1L;
+        var storedTodoDto = new TodoDto(id,"Clean my apartment",LocalDate.now(),false,3L);
+        var pendingTodoDto = new TodoDto(id,"Clean my apartment",LocalDate.now(),true,4L);
+
+        when(todoRepository.findTodoDtoById(id)).thenReturn(Optional.of(storedTodoDto));
+        when(completionBuffer.pending(id))
+                .thenReturn(Optional.of(new TodoCompletionBuffer.PendingCompletion(pendingTodoDto, 2)));
+
+        //Act
+        var foundTodo = todoService.getTodo(id);
+
+        //Assert
+        Assertions.assertThat(foundTodo.completed()).isTrue();
+        Assertions.assertThat(foundTodo.version()).isEqualTo(5L);
+    }
+
+    @Test
+    public void updateTodo_FlushesPendingCompletionFirst() {
+        //Arrange
+        Long id = 1L;
+        var previousTodoDto = new TodoDto(id,"Clean my apartment",LocalDate.now(),true,1L);
+        var todoDto = new TodoDto(id,"Clean my room",LocalDate.now(),true,2L);
+        when(todoRepository.updateTodo(id,"Clean my room",null))
+                .thenReturn(Optional.of(new TodoUpdate(previousTodoDto,todoDto)));
+
+        //Act
+        todoService.updateTodo(id,"Clean my room");
+
+        //Assert
+        var inOrder = inOrder(completionBuffer, todoRepository);
+        inOrder.verify(completionBuffer).flush(List.of(id));
+        inOrder.verify(todoRepository).updateTodo(id,"Clean my room",null);
+    }
+}
@@ -0,0 +1,156 @@
+package io.eskay.basictodo.service;
+
+import io.eskay.basictodo.dto.response.TodoDto;
+import io.eskay.basictodo.event.TodoChangedEvent;
+import io.eskay.basictodo.event.TodosBulkUpdatedEvent;
+import io.eskay.basictodo.repository.TodoArchiveRepository;
+import io.eskay.basictodo.repository.TodoDailyCount;
+import io.eskay.basictodo.repository.TodoRepository;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class TodoStatsServiceUnitTests {
+
+    @Mock
+    private TodoRepository todoRepository;
+
+    @Mock
+    private TodoArchiveRepository archiveRepository;
+
+    @Mock
+    private TodoCompletionBuffer completionBuffer;
+
+    private TodoStatsServiceImpl todoStatsService;
+
+    @BeforeEach
+    public void setUp() {
+        todoStatsService = new TodoStatsServiceImpl(todoRepository, archiveRepository, completionBuffer, 30);
+    }
+
+    @Test
+    public void getStats_ReturnsReconciledCounts() {
+        //Arrange
+        var today = LocalDate.now();
+        when(todoRepository.count()).thenReturn(5L);
+        when(todoRepository.countByCompleted(true)).thenReturn(2L);
+        when(todoRepository.countCreatedPerDaySince(today.minusDays(29)))
+                .thenReturn(List.of(new TodoDailyCount(today, 4L)));
+        todoStatsService.reconcile();
+
+        //Act
+        var stats = todoStatsService.getStats();
+
+        //Assert
+        Assertions.assertThat(stats.total()).isEqualTo(5);
+        Assertions.assertThat(stats.completed()).isEqualTo(2);
+        Assertions.assertThat(stats.pending()).isEqualTo(3);
+        Assertions.assertThat(stats.createdPerDay()).hasSize(30);
+        Assertions.assertThat(stats.createdPerDay()).containsEntry(today, 4L);
+        Assertions.assertThat(stats.createdPerDay()).containsEntry(today.minusDays(1), 0L);
+    }
+
+    @Test
+    public void getStats_CountsArchivedTodosAsCompleted() {
+        //Arrange
+        var today = LocalDate.now();
+        when(todoRepository.count()).thenReturn(5L);
+        when(todoRepository.countByCompleted(true)).thenReturn(2L);
+        when(todoRepository.countCreatedPerDaySince(today.minusDays(29)))
+                .thenReturn(List.of(new TodoDailyCount(today, 4L)));
+        when(archiveRepository.count()).thenReturn(10L);
+        when(archiveRepository.countCreatedPerDaySince(today.minusDays(29)))
+                .thenReturn(List.of(new TodoDailyCount(today.minusDays(20), 3L)));
+        todoStatsService.reconcile();
+
+        //Act
+        var stats = todoStatsService.getStats();
+
+        //Assert
+        Assertions.assertThat(stats.total()).isEqualTo(15);
+        Assertions.assertThat(stats.completed()).isEqualTo(12);
+        Assertions.assertThat(stats.pending()).isEqualTo(3);
+        Assertions.assertThat(stats.createdPerDay()).containsEntry(today, 4L);
+        Assertions.assertThat(stats.createdPerDay()).containsEntry(today.minusDays(20), 3L);
+    }
+
+    @Test
+    public void getStats_CountsChangesWithoutQuerying() {
+        //Arrange
+        var today = LocalDate.now();
+        var todoDto = new TodoDto(1L, "Go for a walk", today, false, 0L);
+        var completedTodoDto = new TodoDto(1L, "Go for a walk", today, true, 0L);
+        var otherTodoDto = new TodoDto(2L, "Listen to music", today, false, 0L);
+
+        //Act
+        todoStatsService.onTodoChanged(new TodoChangedEvent(TodoChangedEvent.Type.CREATED, null, todoDto));
+        todoStatsService.onTodoChanged(new TodoChangedEvent(TodoChangedEvent.Type.CREATED, null, otherTodoDto));
+        todoStatsService.onTodoChanged(new TodoChangedEvent(TodoChangedEvent.Type.PATCHED, todoDto, completedTodoDto));
+        todoStatsService.onTodoChanged(new TodoChangedEvent(TodoChangedEvent.Type.DELETED, otherTodoDto, null));
+        var stats = todoStatsService.getStats();
+
+        //Assert
+        Assertions.assertThat(stats.total()).isEqualTo(1);
+        Assertions.assertThat(stats.completed()).isEqualTo(1);
+        Assertions.assertThat(stats.pending()).isEqualTo(0);
+        Assertions.assertThat(stats.createdPerDay()).containsEntry(today, 1L);
+        verifyNoInteractions(todoRepository);
+    }
+
+    @Test
+    public void getStats_CountsBulkUpdatesWithoutQuerying() {
+        //Act
+        todoStatsService.onTodosBulkUpdated(new TodosBulkUpdatedEvent(List.of(1L, 2L, 3L), true, 3));
+        todoStatsService.onTodosBulkUpdated(new TodosBulkUpdatedEvent(null, false, 1));
+        var stats = todoStatsService.getStats();
+
+        //Assert
+        Assertions.assertThat(stats.completed()).isEqualTo(2);
+        verifyNoInteractions(todoRepository, archiveRepository);
+    }
+
+    @Test
+    public void reconcile_DoesNotCountChangesCountedBeforeItTwice() {
+        //Arrange
+        var today = LocalDate.now();
+        var todoDto = new TodoDto(1L, "Go for a walk", today, true, 0L);
+        todoStatsService.onTodoChanged(new TodoChangedEvent(TodoChangedEvent.Type.CREATED, null, todoDto));
+        when(todoRepository.count()).thenReturn(1L);
+        when(todoRepository.countByCompleted(true)).thenReturn(1L);
+        when(todoRepository.countCreatedPerDaySince(today.minusDays(29)))
+                .thenReturn(List.of(new TodoDailyCount(today, 1L)));
+
+        //Act
+        todoStatsService.reconcile();
+        var stats = todoStatsService.getStats();
+
+        //Assert
+        Assertions.assertThat(stats.total()).isEqualTo(1);
+        Assertions.assertThat(stats.completed()).isEqualTo(1);
+        Assertions.assertThat(stats.createdPerDay()).containsEntry(today, 1L);
+    }
+
+    @Test
+    public void reconcile_FlushesBufferedCompletionsBeforeCounting() {
+        //Arrange
+        var today = LocalDate.now();
+        when(todoRepository.countCreatedPerDaySince(today.minusDays(29))).thenReturn(List.of());
+
+        //Act
+        todoStatsService.reconcile();
+
+        //Assert
+        var inOrder = inOrder(completionBuffer, todoRepository);
+        inOrder.verify(completionBuffer).flush();
+        inOrder.verify(todoRepository).countByCompleted(true);
+    }
+}
@@ -0,0 +1,106 @@
+package io.eskay.basictodo.support;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Pattern;
+
+/*
+ * Records every SQL statement Hibernate prepares, so tests can hold code to an exact statement budget.
+ * Register it on a test context with STATEMENT_INSPECTOR_PROPERTY. Hibernate creates the instance itself,
+ * which is why the recorded statements are static, call reset() before the code under test.
+ */
+public class SqlStatementCounter implements StatementInspector {
+
+    public static final String STATEMENT_INSPECTOR_PROPERTY =
+            "spring.jpa.properties.hibernate.session_factory.statement_inspector=" +
+                    "io.eskay.basictodo.support.SqlStatementCounter";
+
+    // H2 returns the rows touched by an update or delete through 'select ... from old table (update ...)'
+    private static final Pattern DATA_CHANGE_DELTA_TABLE =
+            Pattern.compile("\\b(?:old|new|final)\\s+table\\s*\\(\\s*(\\w+)");
+    private static final Pattern SEQUENCE_CALL = Pattern.compile("\\bnext\\s+value\\s+for\\b|\\bnextval\\s*\\(");
+
+    private static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+    @Override
+    public String inspect(String sql) {
+        STATEMENTS.add(sql);
+        return sql;
+    }
+
+    public static void reset() {
+        STATEMENTS.clear();
+    }
+
+    public static List<String> statements() {
+        return List.copyOf(STATEMENTS);
+    }
+
+    public static SqlStatementCounts counts() {
+        long select = 0, insert = 0, update = 0, delete = 0, sequence = 0;
+        for (var statement : STATEMENTS) {
+            switch (kindOf(statement)) {
+                case "select" -> select++;
+                case "insert" -> insert++;
+                case "update" -> update++;
+                case "delete" -> delete++;
+                case "sequence" -> sequence++;
+                default -> throw new IllegalStateException("cannot tell what kind of statement this is: " + statement);
+            }
+        }
+        return new SqlStatementCounts(select, insert, update, delete, sequence);
+    }
+
+    private static String kindOf(String statement) {
+        var sql = statement.strip().toLowerCase(Locale.ROOT);
+        if (SEQUENCE_CALL.matcher(sql).find())
+            return "sequence";
+
+        var deltaTable = DATA_CHANGE_DELTA_TABLE.matcher(sql);
+        if (deltaTable.find())
+            return deltaTable.group(1);
+
+        // 'with ... select' and friends are classified by the statement after the common table expressions
+        var keyword = sql.split("\\s+", 2)[0];
+        return keyword.equals("with") ? "select" : keyword;
+    }
+
+    /**
+     * Statements by kind. Fetching ids from a sequence is counted on its own, the pooled optimizer only does it
+     * once every allocation size inserts, so how many a call needs depends on what ran before it.
+     */
+    public record SqlStatementCounts(long select, long insert, long update, long delete, long sequence) {
+
+        public static SqlStatementCounts selects(long count) {
+            return new SqlStatementCounts(count, 0, 0, 0, 0);
+        }
+
+        public static SqlStatementCounts inserts(long count) {
+            return new SqlStatementCounts(0, count, 0, 0, 0);
+        }
+
+        public static SqlStatementCounts updates(long count) {
+            return new SqlStatementCounts(0, 0, count, 0, 0);
+        }
+
+        public static SqlStatementCounts deletes(long count) {
+            return new SqlStatementCounts(0, 0, 0, count, 0);
+        }
+
+        public SqlStatementCounts plus(SqlStatementCounts other) {
+            return new SqlStatementCounts(
+                    select + other.select,
+                    insert + other.insert,
+                    update + other.update,
+                    delete + other.delete,
+                    sequence + other.sequence);
+        }
+
+        public SqlStatementCounts withoutSequenceCalls() {
+            return new SqlStatementCounts(select, insert, update, delete, 0);
+        }
+    }
+}